@@ -0,0 +1,351 @@
+package com.pulpdrew.c25k;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The activity leaves its views alone while it is in the background, however much the workout
+ * does in the meantime, and shows a workout without mutating a single drawable.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainActivityTest {
+
+    private static final long SECOND = 1000;
+
+    // The views that show the running workout
+    private static final int[] WORKOUT_TEXT_VIEWS = {R.id.tv_timer, R.id.tv_mode, R.id.tv_day_elapsed,
+            R.id.tv_day_remaining, R.id.bt_pause, R.id.bt_start};
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private MainActivity activity;
+    private Activity cover;
+    private WorkoutService service;
+
+    private final CountDownLatch bound = new CountDownLatch(1);
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName componentName, IBinder binder) {
+            service = ((WorkoutService.LocalBinder) binder).getService();
+            bound.countDown();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName componentName) {
+        }
+    };
+
+    @Before
+    public void setUp() throws InterruptedException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = InstrumentationRegistry.getTargetContext();
+
+        Intent intent = new Intent(context, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        activity = (MainActivity) instrumentation.startActivitySync(intent);
+        context.bindService(new Intent(context, WorkoutService.class), connection, Context.BIND_AUTO_CREATE);
+        assertTrue(bound.await(5, TimeUnit.SECONDS));
+
+        // The saved day is loaded in the background, and can be started once it has been
+        waitFor(new Condition() {
+            @Override
+            public boolean holds() {
+                return activity.findViewById(R.id.bt_start).isEnabled();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (service.isStarted()) {
+                    service.stop();
+                }
+                context.unbindService(connection);
+                if (cover != null) {
+                    cover.finish();
+                }
+                activity.finish();
+            }
+        });
+    }
+
+    @Test
+    public void noViewIsUpdatedWhileInTheBackground() throws InterruptedException {
+        startWorkout();
+
+        // Run up to a few seconds before the end of the first stage
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                service.seekTo(service.getDay().getStageIndex().getEnd(0) - 3 * SECOND);
+            }
+        });
+        SystemClock.sleep(SECOND);
+
+        // Put another activity over it, and count every change to the views from then on
+        hide();
+        final int[] textChanges = new int[1];
+        final ProgressBar timerProgressBar = activity.findViewById(R.id.pb_timer);
+        final ProgressBar stageSeekBar = activity.findViewById(R.id.sb_stage);
+        final int[] progress = new int[2];
+        final Drawable[] drawable = new Drawable[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int id : WORKOUT_TEXT_VIEWS) {
+                    ((TextView) activity.findViewById(id)).addTextChangedListener(new TextWatcher() {
+                        @Override
+                        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                        }
+
+                        @Override
+                        public void onTextChanged(CharSequence s, int start, int before, int count) {
+                            textChanges[0]++;
+                        }
+
+                        @Override
+                        public void afterTextChanged(Editable s) {
+                        }
+                    });
+                }
+                progress[0] = timerProgressBar.getProgress();
+                progress[1] = stageSeekBar.getProgress();
+                drawable[0] = timerProgressBar.getProgressDrawable();
+            }
+        });
+
+        // The stage changes, the timer is paused and resumed and the time is adjusted while hidden
+        SystemClock.sleep(5 * SECOND);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                service.togglePause();
+                service.addMinute();
+                service.togglePause();
+            }
+        });
+        SystemClock.sleep(2 * SECOND);
+
+        // Look at the views before the activity comes back and brings them up to date
+        final Stage[] lifecycle = new Stage[1];
+        final int[] stageNumber = new int[1];
+        final int[] progressAfter = new int[2];
+        final Drawable[] drawableAfter = new Drawable[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                lifecycle[0] = ActivityLifecycleMonitorRegistry.getInstance().getLifecycleStageOf(activity);
+                stageNumber[0] = service.getDay().getStageNumber();
+                progressAfter[0] = timerProgressBar.getProgress();
+                progressAfter[1] = stageSeekBar.getProgress();
+                drawableAfter[0] = timerProgressBar.getProgressDrawable();
+            }
+        });
+        assertEquals(Stage.STOPPED, lifecycle[0]);
+        assertTrue(stageNumber[0] > 0);
+
+        assertEquals("text changes while stopped", 0, textChanges[0]);
+        assertEquals(progress[0], progressAfter[0]);
+        assertEquals(progress[1], progressAfter[1]);
+        assertSame(drawable[0], drawableAfter[0]);
+    }
+
+    @Test
+    public void aWorkoutMutatesNoDrawable() throws InterruptedException {
+
+        // Show the stages with drawables that count how often they are mutated
+        final int[] mutations = new int[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ProgressBar timerProgressBar = activity.findViewById(R.id.pb_timer);
+                timerProgressBar.setProgressDrawable(new CountingDrawable(mutations));
+                activity.setRenderTable(new StageRenderTable(activity.getResources(), timerProgressBar));
+            }
+        });
+
+        // The table mutates its drawables as it is made, and nothing after that should
+        int mutationsAtStart = mutations[0];
+        assertTrue(mutationsAtStart > 0);
+
+        // Go through every stage, pausing, resuming and adjusting the time on each, and stop
+        startWorkout();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                StageIndex timeline = service.getDay().getStageIndex();
+                for (int i = 0; i < timeline.numberOfStages() && service.isStarted(); i++) {
+                    service.seekTo(timeline.getStart(i));
+                    service.togglePause();
+                    service.togglePause();
+                    service.addMinute();
+                    service.subtractMinute();
+                }
+            }
+        });
+        SystemClock.sleep(SECOND);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (service.isStarted()) {
+                    service.stop();
+                }
+            }
+        });
+        instrumentation.waitForIdleSync();
+
+        assertEquals("drawable mutations during the workout", mutationsAtStart, mutations[0]);
+    }
+
+    /**
+     * Starts the open day from the activity's start button.
+     */
+    private void startWorkout() throws InterruptedException {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.findViewById(R.id.bt_start).performClick();
+            }
+        });
+        waitFor(new Condition() {
+            @Override
+            public boolean holds() {
+                return service.isStarted();
+            }
+        });
+    }
+
+    /**
+     * Opens the progress screen over the activity, and waits until the activity is stopped.
+     */
+    private void hide() throws InterruptedException {
+        Instrumentation.ActivityMonitor monitor = instrumentation.addMonitor(ProgressActivity.class.getName(), null, false);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.startActivity(new Intent(activity, ProgressActivity.class));
+            }
+        });
+        cover = instrumentation.waitForMonitorWithTimeout(monitor, 5 * SECOND);
+        instrumentation.removeMonitor(monitor);
+        waitFor(new Condition() {
+            @Override
+            public boolean holds() {
+                return ActivityLifecycleMonitorRegistry.getInstance().getLifecycleStageOf(activity) == Stage.STOPPED;
+            }
+        });
+    }
+
+    /**
+     * Plain drawable that counts the mutations of it and of every drawable made from it.
+     */
+    private static class CountingDrawable extends Drawable {
+
+        private final int[] mutations;
+        private final Paint paint = new Paint();
+
+        CountingDrawable(int[] mutations) {
+            this.mutations = mutations;
+        }
+
+        @Override
+        public Drawable mutate() {
+            mutations[0]++;
+            return this;
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            canvas.drawRect(getBounds(), paint);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            paint.setAlpha(alpha);
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            paint.setColorFilter(colorFilter);
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+
+        @Override
+        public ConstantState getConstantState() {
+            return new ConstantState() {
+                @Override
+                public Drawable newDrawable() {
+                    return new CountingDrawable(mutations);
+                }
+
+                @Override
+                public int getChangingConfigurations() {
+                    return 0;
+                }
+            };
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    /**
+     * Waits for the given condition to hold on the main thread, failing after five seconds.
+     */
+    private void waitFor(final Condition condition) throws InterruptedException {
+        final boolean[] holds = new boolean[1];
+        long deadline = SystemClock.elapsedRealtime() + 5 * SECOND;
+        while (SystemClock.elapsedRealtime() < deadline) {
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    holds[0] = condition.holds();
+                }
+            });
+            if (holds[0]) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Timed out waiting");
+    }
+}
@@ -0,0 +1,167 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Flicking through the days costs a single write of the preferences, however many days are
+ * selected on the way, and selecting the day that is already saved costs none.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SettingsTest {
+
+    private Context context;
+    private CountingPreferences preferences;
+
+    @Before
+    public void setUp() {
+        Context target = InstrumentationRegistry.getTargetContext();
+        SharedPreferences real = target.getSharedPreferences(target.getString(R.string.pref_key), Context.MODE_PRIVATE);
+        real.edit().clear().commit();
+        preferences = new CountingPreferences(real);
+
+        // Hand the settings the counting preferences in place of the real ones
+        context = new ContextWrapper(target) {
+            @Override
+            public SharedPreferences getSharedPreferences(String name, int mode) {
+                return preferences;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        preferences.preferences.edit().clear().commit();
+    }
+
+    @Test
+    public void selectingManyDaysWritesOnce() {
+        Settings settings = new Settings(context);
+        for (int week = 1; week <= 9; week++) {
+            for (int day = 1; day <= 3; day++) {
+                settings.setSelectedDay(week, day);
+            }
+        }
+        settings.setSelectedDay(4, 2);
+
+        // The activity is paused, which writes the last selection
+        settings.flush();
+        settings.flush();
+
+        assertEquals(1, preferences.edits);
+        Settings read = new Settings(context);
+        assertEquals(4, read.getSelectedWeek(0));
+        assertEquals(2, read.getSelectedDay(0));
+    }
+
+    @Test
+    public void reselectingTheSavedDayWritesNothing() {
+        Settings settings = new Settings(context);
+        settings.setSelectedDay(2, 3);
+        settings.flush();
+        assertEquals(1, preferences.edits);
+
+        // Such as the day spinner echoing a change of week, or the app opening on the saved day
+        settings.setSelectedDay(2, 3);
+        settings.flush();
+        new Settings(context).setSelectedDay(2, 3);
+        assertEquals(1, preferences.edits);
+    }
+
+    @Test
+    public void aChangeIsWrittenOnceTheSelectionSettles() throws InterruptedException {
+        Settings settings = new Settings(context);
+        settings.setSelectedDay(1, 1);
+        settings.setSelectedDay(1, 2);
+        assertEquals(0, preferences.edits);
+
+        Thread.sleep(Settings.WRITE_DELAY_MILLIS + 1000);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(1, preferences.edits);
+
+        settings.flush();
+        assertEquals(1, preferences.edits);
+    }
+
+    /**
+     * Preferences that count how often they are edited, which is once per write.
+     */
+    private static class CountingPreferences implements SharedPreferences {
+
+        final SharedPreferences preferences;
+        volatile int edits;
+
+        CountingPreferences(SharedPreferences preferences) {
+            this.preferences = preferences;
+        }
+
+        @Override
+        public Editor edit() {
+            edits++;
+            return preferences.edit();
+        }
+
+        @Override
+        public Map<String, ?> getAll() {
+            return preferences.getAll();
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return preferences.getString(key, defValue);
+        }
+
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return preferences.getStringSet(key, defValues);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return preferences.getInt(key, defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return preferences.getLong(key, defValue);
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return preferences.getFloat(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return preferences.getBoolean(key, defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return preferences.contains(key);
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            preferences.registerOnSharedPreferenceChangeListener(listener);
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            preferences.unregisterOnSharedPreferenceChangeListener(listener);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.pulpdrew.c25k;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The service posts the workout notification once for each change of stage, pause, resume or
+ * adjustment of the time, and never for a tick, however many ticks it sends.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WorkoutServiceTest {
+
+    private static final long SECOND = 1000;
+
+    private Context context;
+    private WorkoutService service;
+
+    // The number of ticks sent to the listener, and of stage changes
+    private volatile int ticks, stageChanges;
+
+    private final CountDownLatch bound = new CountDownLatch(1);
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName componentName, IBinder binder) {
+            service = ((WorkoutService.LocalBinder) binder).getService();
+            bound.countDown();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName componentName) {
+        }
+    };
+
+    // Listens as the activity does, so that the timer ticks every second
+    private final WorkoutService.WorkoutListener listener = new WorkoutService.WorkoutListener() {
+        @Override
+        public void onStageChanged(Stage stage, int stageNumber) {
+            stageChanges++;
+        }
+
+        @Override
+        public void onPauseChanged(boolean running) {
+        }
+
+        @Override
+        public void onTimerTick(long millisLeft) {
+            ticks++;
+        }
+
+        @Override
+        public void onWorkoutStopped() {
+        }
+
+        @Override
+        public void onCompleteChanged(boolean complete) {
+        }
+    };
+
+    @Before
+    public void setUp() throws InterruptedException {
+        context = InstrumentationRegistry.getTargetContext();
+        context.bindService(new Intent(context, WorkoutService.class), connection, Context.BIND_AUTO_CREATE);
+        assertTrue(bound.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (service.isStarted()) {
+                    service.stop();
+                }
+                service.setWorkoutListener(null);
+                context.unbindService(connection);
+            }
+        });
+    }
+
+    @Test
+    public void postsOncePerChangeAndNeverPerTick() {
+        final int[] posts = new int[1];
+
+        // Week 1 day 1 warms up for five minutes, then runs for one and walks for a minute and a half
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                service.setWorkoutListener(listener);
+                posts[0] = service.getNotificationPostCount();
+                service.start(new Day(1, 1, AppData.getPlan(context), AppData.getHistory(context)));
+            }
+        });
+        assertPosts(posts[0] + 1);
+
+        // Ticks post nothing
+        SystemClock.sleep(3 * SECOND);
+        assertTrue("ticks: " + ticks, ticks >= 2);
+        assertPosts(posts[0] + 1);
+
+        // Each pause, resume and minute posts once
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                service.togglePause();
+                service.togglePause();
+                service.addMinute();
+                service.subtractMinute();
+            }
+        });
+        assertPosts(posts[0] + 5);
+
+        // The stage running out posts once
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                service.seekTo(service.getDay().getStageIndex().getEnd(0) - 2 * SECOND);
+            }
+        });
+        assertPosts(posts[0] + 6);
+        SystemClock.sleep(3 * SECOND);
+        assertEquals(2, stageChanges);
+        assertPosts(posts[0] + 7);
+
+        // A minute that moves on a stage posts once, not once for the stage and once for the time
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                service.subtractMinute();
+            }
+        });
+        assertEquals(3, stageChanges);
+        assertPosts(posts[0] + 8);
+    }
+
+    /**
+     * Checks the number of notification posts, on the main thread that posts them.
+     */
+    private void assertPosts(int expected) {
+        final int[] posts = new int[1];
+        onMainThread(new Runnable() {
+            @Override
+            public void run() {
+                posts[0] = service.getNotificationPostCount();
+            }
+        });
+        assertEquals("notification posts", expected, posts[0]);
+    }
+
+    private static void onMainThread(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,48 @@
+package com.pulpdrew.c25k;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+/**
+ * Alarm clock backed by the AlarmManager, which delivers the alarm to a service as an intent
+ * with the given action. There is only ever one alarm, so setting it again replaces it.
+ *
+ * The alarm is set with setAlarmClock, as the stage boundaries are a minute or two apart and
+ * the alarms that are allowed to fire while the device is idle can only go off about once every
+ * nine minutes there. An alarm clock goes off on time however idle the device is, and the system
+ * shows it as the next alarm, opening the given activity when it is tapped. It is set in
+ * wall-clock time, so the time it is given on SystemClock.elapsedRealtime is converted when it
+ * is set. If the time is changed while it is waiting, it goes off early or late, and the next
+ * stage sets it again from its own deadline.
+ */
+class AndroidAlarmClock implements StageScheduler.AlarmClock {
+
+    private final AlarmManager alarmManager;
+    private final PendingIntent intent;
+    private final PendingIntent showIntent;
+
+    AndroidAlarmClock(Context context, Class<?> serviceClass, String action, Class<?> activityClass) {
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent service = new Intent(context, serviceClass);
+        service.setAction(action);
+        this.intent = PendingIntent.getService(context, 0, service, PendingIntent.FLAG_UPDATE_CURRENT);
+
+        Intent activity = new Intent(context, activityClass);
+        activity.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        this.showIntent = PendingIntent.getActivity(context, 0, activity, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    @Override
+    public void set(long triggerAtTime) {
+        long wallTime = System.currentTimeMillis() + (triggerAtTime - SystemClock.elapsedRealtime());
+        alarmManager.setAlarmClock(new AlarmManager.AlarmClockInfo(wallTime, showIntent), intent);
+    }
+
+    @Override
+    public void cancel() {
+        alarmManager.cancel(intent);
+    }
+}
@@ -0,0 +1,34 @@
+package com.pulpdrew.c25k;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Clock that reads SystemClock.elapsedRealtime and System.currentTimeMillis, and runs its
+ * callbacks on the main thread.
+ */
+class AndroidClock implements Clock {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void postDelayed(Runnable runnable, long delayMillis) {
+        handler.postDelayed(runnable, delayMillis);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+        handler.removeCallbacks(runnable);
+    }
+}
@@ -0,0 +1,202 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the data that is shared across the whole process: the Plan, the ProgramRegistry, a
+ * HistoryLog for each program, the CheckpointFile, the SessionStats and the Settings. Each is read in from the
+ * assets and files directory the first time it is needed. Keeping the Android side of loading
+ * here lets Plan, Day and HistoryLog be plain Java classes.
+ */
+class AppData {
+
+    private static final String HISTORY_FILENAME = "history.log";
+    private static final String PROGRAM_HISTORY_PREFIX = "history_";
+    private static final String CHECKPOINT_FILENAME = "workout.checkpoint";
+    private static final String STATS_FILENAME = "stats.snapshot";
+
+    private static Plan plan;
+    private static ProgramRegistry programs;
+    private static final Map<String, HistoryLog> histories = new HashMap<>();
+    private static CheckpointFile checkpointFile;
+    private static StatsFile statsFile;
+    private static SessionStats stats;
+    private static Settings settings;
+
+    private AppData() {
+    }
+
+    /**
+     * Returns the plan for the app, reading it in from the assets the first time it is needed.
+     */
+    static synchronized Plan getPlan(Context context) {
+        if (plan == null) {
+            plan = loadPlan(context.getApplicationContext());
+        }
+        return plan;
+    }
+
+    /**
+     * Returns every program that can be run, finding and indexing them the first time they are
+     * needed. Indexing reads the program files, so the first call should not be made on the
+     * main thread.
+     */
+    static synchronized ProgramRegistry getPrograms(Context context) {
+        if (programs == null) {
+            programs = new ProgramRegistry(context.getApplicationContext());
+        }
+        return programs;
+    }
+
+    /**
+     * Returns the history log of the built-in plan. See getHistory(Context, String).
+     */
+    static HistoryLog getHistory(Context context) {
+        return getHistory(context, ProgramRegistry.BUILT_IN);
+    }
+
+    /**
+     * Returns the history log of the given program, opening it the first time it is needed.
+     * Each program has its own log, as their days share weeks and day numbers. Opening the log
+     * reads the file, so the first call should not be made on the main thread.
+     *
+     * @param program the id of the program, from the ProgramRegistry.
+     */
+    static synchronized HistoryLog getHistory(Context context, String program) {
+        HistoryLog history = histories.get(program);
+        if (history == null) {
+            boolean builtIn = ProgramRegistry.BUILT_IN.equals(program);
+            File file = new File(context.getFilesDir(), builtIn ? HISTORY_FILENAME : PROGRAM_HISTORY_PREFIX + program + ".log");
+            boolean existed = file.exists();
+
+            history = new HistoryLog(file);
+            history.open();
+            if (builtIn && !existed) {
+                importPreferences(context, history);
+            }
+            histories.put(program, history);
+        }
+        return history;
+    }
+
+    /**
+     * Writes and syncs the events of every open history log in the background.
+     */
+    static synchronized void flushHistories() {
+        for (HistoryLog history : histories.values()) {
+            history.flush();
+        }
+    }
+
+    /**
+     * Returns the file that the running workout is checkpointed to.
+     */
+    static synchronized CheckpointFile getCheckpointFile(Context context) {
+        if (checkpointFile == null) {
+            checkpointFile = new CheckpointFile(new File(context.getFilesDir(), CHECKPOINT_FILENAME));
+        }
+        return checkpointFile;
+    }
+
+    /**
+     * Returns the file that the stats are saved to.
+     */
+    static synchronized StatsFile getStatsFile(Context context) {
+        if (statsFile == null) {
+            statsFile = new StatsFile(new File(context.getFilesDir(), STATS_FILENAME));
+        }
+        return statsFile;
+    }
+
+    /**
+     * Returns the stats of every session, of every program, reading in their snapshot the first
+     * time they are needed. The first call reads the snapshot file, so it should not be made on
+     * the main thread. After that the stats are only used on the main thread, where the workout
+     * records its events in them.
+     */
+    static synchronized SessionStats getStats(Context context) {
+        if (stats == null) {
+            stats = getStatsFile(context).read();
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the settings for the app, reading them in the first time they are needed. The
+     * first call reads the preferences file, so it should not be made on the main thread.
+     */
+    static synchronized Settings getSettings(Context context) {
+        if (settings == null) {
+            settings = new Settings(context.getApplicationContext());
+        }
+        return settings;
+    }
+
+    /**
+     * Reads in the compiled plan file, or the text file for each day if there is no plan file.
+     */
+    private static Plan loadPlan(Context context) {
+
+        try (InputStream in = context.getAssets().open(PlanFile.FILENAME)) {
+            return PlanFile.read(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return readTextPlan(context);
+    }
+
+    /**
+     * Reads in every "[week]_[day].c25k" text file in the assets folder, with the same reader
+     * as the simulator, so that the two can't read the files differently.
+     */
+    private static Plan readTextPlan(Context context) {
+
+        final AssetManager assets = context.getAssets();
+        try {
+            return TextPlanReader.readPlan(new TextPlanReader.Source() {
+                @Override
+                public String[] list() throws IOException {
+                    return assets.list("");
+                }
+
+                @Override
+                public InputStream open(String filename) throws IOException {
+                    return assets.open(filename);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Plan.NO_DAYS;
+        }
+    }
+
+    /**
+     * Copies the completion of each day out of the preferences that older versions stored it in.
+     */
+    private static void importPreferences(Context context, HistoryLog history) {
+
+        SharedPreferences preferences = context.getSharedPreferences(context.getString(R.string.pref_key), Context.MODE_PRIVATE);
+        String prefix = context.getString(R.string.pref_complete_prefix);
+
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || !Boolean.TRUE.equals(entry.getValue())) {
+                continue;
+            }
+            String[] weekAndDay = entry.getKey().substring(prefix.length()).split("_");
+            try {
+                history.append(HistoryLog.EVENT_MARK_COMPLETE, Integer.parseInt(weekAndDay[0]), Integer.parseInt(weekAndDay[1]), 0);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // Not a completion key
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+
+/**
+ * Plays the sound and vibration that announce each stage, so that the runner knows what to do
+ * without looking at the screen. Each type of stage has its own sound and vibration pattern:
+ * short pulses to start running, a single long one to walk, and a medium one for the warm-up and
+ * cooldown. Finishing the day has a pattern of its own.
+ *
+ * Everything is prepared ahead of the cues. The vibrator is fetched once, the vibration effects
+ * are made once, and the sounds are decoded into a SoundPool when a workout starts, so giving a
+ * cue only starts playback. The sounds are released a little after the workout ends, once the
+ * last of them has finished playing.
+ */
+class CuePlayer implements CueScheduler.CueListener {
+
+    // Long enough for the finish sound to play out
+    private static final long RELEASE_DELAY_MILLIS = 3000;
+
+    private static final Stage.StageType[] STAGE_TYPES = Stage.StageType.values();
+
+    // The timings of the vibration for finishing, in milliseconds off and on. Each type of stage has its pattern in the StageRenderTable.
+    private static final long[] FINISH_PATTERN = {0, 200, 100, 200, 100, 600};
+
+    // The sound resource for each type of stage, by ordinal
+    private static final int[] SOUNDS = {R.raw.cue_easy, R.raw.cue_easy, R.raw.cue_run, R.raw.cue_walk};
+
+    private final Context context;
+    private final Vibrator vibrator;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Made once on Android O and above, where vibrations are given as effects
+    private VibrationEffect[] effects;
+    private VibrationEffect finishEffect;
+
+    // The pool and the id of each sound in it, while a workout is running
+    private SoundPool soundPool;
+    private final int[] soundIds = new int[SOUNDS.length];
+    private int finishSoundId;
+
+    private final Runnable release = new Runnable() {
+        @Override
+        public void run() {
+            release();
+        }
+    };
+
+    CuePlayer(Context context) {
+        this.context = context.getApplicationContext();
+        this.vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            effects = new VibrationEffect[STAGE_TYPES.length];
+            for (int i = 0; i < STAGE_TYPES.length; i++) {
+                effects[i] = VibrationEffect.createWaveform(StageRenderTable.patternOf(STAGE_TYPES[i]), -1);
+            }
+            finishEffect = VibrationEffect.createWaveform(FINISH_PATTERN, -1);
+        }
+    }
+
+    /**
+     * Loads the sounds, if they aren't already loaded. Called when a workout starts, so that the
+     * sounds are ready well before the first boundary.
+     */
+    void load() {
+        handler.removeCallbacks(release);
+        if (soundPool != null) {
+            return;
+        }
+
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder().setMaxStreams(1).setAudioAttributes(attributes).build();
+        for (int i = 0; i < SOUNDS.length; i++) {
+            soundIds[i] = soundPool.load(context, SOUNDS[i], 1);
+        }
+        finishSoundId = soundPool.load(context, R.raw.cue_finish, 1);
+    }
+
+    /**
+     * Releases the sounds once the last cue of a workout has had time to play.
+     */
+    void releaseLater() {
+        handler.removeCallbacks(release);
+        handler.postDelayed(release, RELEASE_DELAY_MILLIS);
+    }
+
+    /**
+     * Releases the sounds straight away.
+     */
+    void release() {
+        handler.removeCallbacks(release);
+        if (soundPool != null) {
+            soundPool.release();
+            soundPool = null;
+        }
+    }
+
+    @Override
+    public void onCue(Stage next, long boundary) {
+        int type = next != null ? next.getStageType().ordinal() : -1;
+
+        if (soundPool != null) {
+            soundPool.play(type >= 0 ? soundIds[type] : finishSoundId, 1, 1, 1, 0, 1);
+        }
+
+        if (vibrator == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            vibrator.vibrate(type >= 0 ? effects[type] : finishEffect);
+        } else {
+            vibrator.vibrate(type >= 0 ? StageRenderTable.patternOf(next.getStageType()) : FINISH_PATTERN, -1);
+        }
+    }
+}
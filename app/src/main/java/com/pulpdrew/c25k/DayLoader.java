@@ -0,0 +1,224 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads days of the selected program on a background thread, so that reading the programs and
+ * the settings never happens on the main thread. Each new request supersedes the previous one: stale loads are
+ * cancelled, and only the result of the most recent request is delivered to its callback. A load
+ * that throws is delivered to its callback as a failure, so that the UI waiting on it can recover.
+ */
+class DayLoader {
+
+    /**
+     * Receives a loaded day, or the failure to load it, on the main thread.
+     */
+    interface Callback {
+        void onDayLoaded(int week, int day, Day loaded);
+
+        void onDayLoadFailed(int week, int day, RuntimeException error);
+    }
+
+    /**
+     * Receives the saved day on the main thread, along with the checkpoint of the workout that
+     * was running on it if the app was killed during a workout.
+     */
+    interface SavedCallback {
+
+        /**
+         * @param checkpoint the checkpoint to resume the workout from, or null if there was no
+         *                   workout running.
+         */
+        void onSavedDayLoaded(int week, int day, Day loaded, Checkpoint checkpoint);
+
+        void onSavedDayLoadFailed(RuntimeException error);
+    }
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    // Only accessed from the main thread
+    private Future<?> pending;
+    private int generation;
+
+    DayLoader(Context context) {
+        this.context = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Loads the day of the workout that was running when the app was killed, if there was one,
+     * or otherwise the day that was most recently selected in the Settings.
+     *
+     * @param defaultWeek the week to load if no day has been saved.
+     * @param defaultDay  the day to load if no day has been saved. If the program doesn't have
+     *                    the default day, its first day is loaded.
+     */
+    void loadSaved(final int defaultWeek, final int defaultDay, final SavedCallback callback) {
+        submit(new Task() {
+
+            private Checkpoint checkpoint;
+
+            @Override
+            Day load() {
+                Settings settings = AppData.getSettings(context);
+                Program program = AppData.getPrograms(context).getProgram(settings.getSelectedProgram());
+
+                // A checkpoint is only left behind if the process died during a workout
+                CheckpointFile checkpointFile = AppData.getCheckpointFile(context);
+                checkpoint = checkpointFile.read();
+                if (checkpoint != null && (checkpoint.isStale(SystemClock.elapsedRealtime(), System.currentTimeMillis())
+                        || program.indexOf(checkpoint.getWeek(), checkpoint.getDay()) < 0)) {
+                    checkpointFile.clear();
+                    checkpoint = null;
+                }
+
+                if (checkpoint != null) {
+                    week = checkpoint.getWeek();
+                    day = checkpoint.getDay();
+                } else {
+                    week = settings.getSelectedWeek(defaultWeek);
+                    day = settings.getSelectedDay(defaultDay);
+                    if (program.indexOf(week, day) < 0 && program.numberOfDays() > 0) {
+                        week = program.getWeek(0);
+                        day = program.getDay(0);
+                    }
+                }
+                return newDay(week, day);
+            }
+
+            @Override
+            void deliver(Day loaded) {
+                callback.onSavedDayLoaded(week, day, loaded, checkpoint);
+            }
+
+            @Override
+            void fail(RuntimeException error) {
+                callback.onSavedDayLoadFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Loads the given day.
+     */
+    void load(final int week, final int day, final Callback callback) {
+        submit(new Task() {
+            @Override
+            Day load() {
+                this.week = week;
+                this.day = day;
+                return newDay(week, day);
+            }
+
+            @Override
+            void deliver(Day loaded) {
+                callback.onDayLoaded(week, day, loaded);
+            }
+
+            @Override
+            void fail(RuntimeException error) {
+                callback.onDayLoadFailed(week, day, error);
+            }
+        });
+    }
+
+    /**
+     * Cancels any pending load, so that its callback is never called.
+     */
+    void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Cancels any pending load and stops the background thread.
+     */
+    void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    /**
+     * Makes the given day of the selected program, reading its stages in if the program doesn't
+     * keep them in memory. A day that can't be read has no stages (see Day.read).
+     */
+    private Day newDay(int week, int day) {
+        ProgramRegistry programs = AppData.getPrograms(context);
+        int selected = programs.indexOf(AppData.getSettings(context).getSelectedProgram());
+
+        // Read the stats in along with the day, so that starting a workout on it doesn't read them on the main thread
+        AppData.getStats(context);
+        return Day.read(programs.getProgram(selected), week, day, AppData.getHistory(context, programs.getId(selected)));
+    }
+
+    private void submit(Task task) {
+        cancel();
+        task.generation = generation;
+        pending = executor.submit(task);
+    }
+
+    /**
+     * A single load request, which posts its result back to the main thread if it is still
+     * the most recent request when it finishes.
+     */
+    private abstract class Task implements Runnable {
+
+        private int generation;
+        int week, day;
+
+        /**
+         * Loads the day on the background thread, setting week and day to the loaded day.
+         */
+        abstract Day load();
+
+        /**
+         * Passes the loaded day to the callback, on the main thread.
+         */
+        abstract void deliver(Day loaded);
+
+        /**
+         * Passes the failure to load the day to the callback, on the main thread.
+         */
+        abstract void fail(RuntimeException error);
+
+        @Override
+        public void run() {
+            Day result = null;
+            RuntimeException failure = null;
+            try {
+                result = load();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            final Day loaded = result;
+            final RuntimeException error = failure;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == DayLoader.this.generation) {
+                        pending = null;
+                        if (error != null) {
+                            fail(error);
+                        } else {
+                            deliver(loaded);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
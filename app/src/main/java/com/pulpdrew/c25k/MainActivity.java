@@ -1,39 +1,32 @@
 package com.pulpdrew.c25k;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.graphics.Color;
-import android.graphics.PorterDuff;
+import android.content.ServiceConnection;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
-import android.support.v4.app.NotificationCompat;
-import android.support.v4.app.NotificationManagerCompat;
+import android.os.IBinder;
+import android.os.StrictMode;
+import android.text.Editable;
 import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ProgressBar;
 import android.widget.SeekBar;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import java.util.Locale;
+import java.util.Arrays;
 
-public class MainActivity extends AppCompatActivity implements Timer.TimerListener {
+public class MainActivity extends AppCompatActivity implements WorkoutService.WorkoutListener, DayLoader.Callback {
 
-    /*
-     * Identification constants
-     */
-    private static String CHANNEL_ID = "125348";
-    private static int NOTIFICATION_ID = 123;
-
-    private static int PROGRESS_SUBDIVISIONS = 1000;
+    private static int PROGRESS_SUBDIVISIONS = 10000;
 
     /*
      * Layout View variables
@@ -41,46 +34,83 @@ public class MainActivity extends AppCompatActivity implements Timer.TimerListen
     private ProgressBar timerProgressBar;
     private SeekBar stageSeekBar;
     private Button plusButton, minusButton, pauseButton, completeButton, startButton;
-    private Spinner weekSpinner, daySpinner;
+    private Spinner programSpinner, weekSpinner, daySpinner;
     private TextView completeTV, summaryTV, timerTV, stageTV;
+    private TextView dayTotalsTV, dayElapsedTV, dayRemainingTV;
 
     /*
      * Class variables
      */
 
-    // Timer variables
-    private Timer timer;
-    private boolean timerRunning;
+    // The service that runs the workout, or null while it is not bound
+    private WorkoutService service;
 
     // State variables
-    private boolean started;
     private int dayIndex, weekIndex;
     private Day day;
-    private Stage stage;
+    private boolean dayLoading;
+    private DayLoader dayLoader;
+    private Settings settings;
+
+    // The programs that can be run, and the weeks of the selected one and the days of its selected week
+    private ProgramRegistry programs;
+    private Program program;
+    private int[] weeks = new int[0];
+    private int[] days = new int[0];
+    private final TimeFormatter timeFormatter = new TimeFormatter();
+    private ProgressRenderer progressRenderer;
 
-    // Used for the notification
-    private PendingIntent pendingIntent;
+    /*
+     * The time through the whole day is worked out on each tick from the end of the current
+     * stage, which is looked up in the day's StageIndex when the stage changes, so a tick never
+     * walks the stages however many the day has.
+     */
+    private long stageEndMillis, dayLengthMillis;
+    private final TimeFormatter dayElapsedFormatter = new TimeFormatter();
+    private final TimeFormatter dayRemainingFormatter = new TimeFormatter();
 
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+    // The label and progress drawable of each type of stage, for the current configuration
+    private StageRenderTable renderTable;
 
-        /*
-         * Set up the notification channel on Android O and above
-         */
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+    // The checkpoint of a workout that was killed with the process, until the service resumes it
+    private Checkpoint resumable;
 
-            // Create the channel with low importance to avoid vibration or sounds
-            int importance = NotificationManager.IMPORTANCE_LOW;
-            CharSequence name = getString(R.string.channel_name);
-            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(getString(R.string.channel_description));
+    /*
+     * The views only show the workout while the activity is visible. Between onStop and onStart
+     * every update is dropped, and onStart brings the views back up to date in one step.
+     */
+    private boolean visible;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName componentName, IBinder binder) {
+            service = ((WorkoutService.LocalBinder) binder).getService();
+            service.setWorkoutListener(MainActivity.this);
+            resumeWorkout();
+            syncWithService();
+        }
 
-            // Register the channel with the system
-            NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-            notificationManager.createNotificationChannel(channel);
+        @Override
+        public void onServiceDisconnected(ComponentName componentName) {
+            service = null;
         }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+
+        // In the strict build, crash on any disk access from the main thread
+        if (BuildConfig.STRICT_MODE) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+        }
+
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_main);
 
         /*
          * Find the views from the layout.
@@ -92,32 +122,43 @@ public class MainActivity extends AppCompatActivity implements Timer.TimerListen
         pauseButton = findViewById(R.id.bt_pause);
         completeButton = findViewById(R.id.bt_complete);
         startButton = findViewById(R.id.bt_start);
+        programSpinner = findViewById(R.id.program_spinner);
         weekSpinner = findViewById(R.id.week_spinner);
         daySpinner = findViewById(R.id.day_spinner);
         completeTV = findViewById(R.id.tv_complete);
         summaryTV = findViewById(R.id.tv_summary);
         timerTV = findViewById(R.id.tv_timer);
         stageTV = findViewById(R.id.tv_mode);
+        dayTotalsTV = findViewById(R.id.tv_day_totals);
+        dayElapsedTV = findViewById(R.id.tv_day_elapsed);
+        dayRemainingTV = findViewById(R.id.tv_day_remaining);
 
-        // Setup buttons
+        // Setup buttons. The timer buttons are left enabled from the last workout shown while the
+        // service is rebound, so they do nothing until it is.
         plusButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                timer.addMinute();
+                if (service != null) {
+                    service.addMinute();
+                }
             }
         });
         plusButton.setEnabled(false);
         minusButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                timer.subtractMinute();
+                if (service != null) {
+                    service.subtractMinute();
+                }
             }
         });
         minusButton.setEnabled(false);
         pauseButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                togglePause();
+                if (service != null) {
+                    service.togglePause();
+                }
             }
         });
         pauseButton.setEnabled(false);
@@ -134,29 +175,68 @@ public class MainActivity extends AppCompatActivity implements Timer.TimerListen
             }
         });
 
-        // setup progress bar with 0 progress and grey color
+        // setup progress bar with 0 progress and grey color. Its drawable for each stage is tinted
+        // here, once, so that changing stage only swaps the drawable.
         timerProgressBar.setMax(PROGRESS_SUBDIVISIONS);
         timerProgressBar.setProgress(0);
-        timerProgressBar.getProgressDrawable().setColorFilter(Color.GRAY, PorterDuff.Mode.SRC_IN);
+        setRenderTable(new StageRenderTable(getResources(), timerProgressBar));
+        progressRenderer = new ProgressRenderer(timerProgressBar);
 
-        // Set up seek bar, disabled so that the user cannot change it
+        // Set up seek bar, which jumps to the start of a stage. It is only enabled during a workout.
         stageSeekBar.setEnabled(false);
         stageSeekBar.setProgress(0);
+        stageSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                if (service != null && service.isStarted()) {
+                    Day running = service.getDay();
+                    service.seekTo(running.getStageIndex().getStart(seekBar.getProgress()));
+                }
+            }
+        });
 
-        // Setup the day and week number dropdowns to change the day and week when selected
+        // Setup the program, week and day dropdowns to change the day when selected. Their
+        // entries come from the programs, once they have been loaded with the saved day.
+        programSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
+
+                // Ignore the initial selection, and the program that is already selected
+                if (day == null || programs.getId(i).equals(settings.getSelectedProgram())) {
+                    return;
+                }
+                setProgram(i);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) {
+
+            }
+        });
         weekSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
 
-                // Change the week to the selected week
-                weekIndex = i + 1;
+                // Ignore the initial selection until the saved day has been loaded, and the week
+                // that is already selected
+                if (day == null || weeks[i] == weekIndex) {
+                    return;
+                }
 
-                // Whenever the week is changed, change the day to day 1
-                dayIndex = 1;
-                daySpinner.setSelection(dayIndex - 1);
+                // Whenever the week is changed, change the day to the first day of the week
+                showDays(weeks[i]);
+                daySpinner.setSelection(0);
 
                 // Set the day state variable to the new day
-                setDay(weekIndex, dayIndex);
+                setDay(weeks[i], days[0]);
             }
 
             @Override
@@ -168,9 +248,13 @@ public class MainActivity extends AppCompatActivity implements Timer.TimerListen
             @Override
             public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
 
+                // Ignore the initial selection until the saved day has been loaded
+                if (day == null) {
+                    return;
+                }
+
                 // Change the day to the selected day and update the day state variable to the new day
-                dayIndex = i + 1;
-                setDay(weekIndex, dayIndex);
+                setDay(weekIndex, days[i]);
             }
 
             @Override
@@ -179,271 +263,551 @@ public class MainActivity extends AppCompatActivity implements Timer.TimerListen
             }
         });
 
-        // setup timer with this as its listener
-        timer = new Timer();
-        timer.setTimerListener(this);
+        // Setup the initial day to the most recent day that the app was set to. The day can't be
+        // started until it has been loaded.
+        startButton.setEnabled(false);
+        completeButton.setEnabled(false);
+        dayLoader = new DayLoader(this);
+        dayLoader.loadSaved(1, 2, new DayLoader.SavedCallback() {
+            @Override
+            public void onSavedDayLoaded(int week, int day, Day loaded, Checkpoint checkpoint) {
+
+                // The settings and programs have been read in by now, so they can be kept for the main thread
+                settings = AppData.getSettings(MainActivity.this);
+                programs = AppData.getPrograms(MainActivity.this);
+                showPrograms();
+
+                // A running workout takes precedence over the saved day
+                if (service != null && service.isStarted()) {
+                    Day running = service.getDay();
+                    selectDay(running.getWeekNumber(), running.getDayNumber());
+                    return;
+                }
+
+                selectDay(week, day);
+                MainActivity.this.onDayLoaded(week, day, loaded);
+
+                // Pick the workout back up if the process was killed while it was running
+                resumable = checkpoint;
+                resumeWorkout();
+            }
+
+            @Override
+            public void onSavedDayLoadFailed(RuntimeException error) {
+
+                // There is no day to fall back on, so say why nothing can be started
+                error.printStackTrace();
+                summaryTV.setText(R.string.day_load_failed);
+            }
+        });
+
+    }
 
-        // Setup the initial day to the most recent day that the app was set to
-        SharedPreferences preferences = getSharedPreferences(getString(R.string.pref_key), Context.MODE_PRIVATE);
-        weekIndex = preferences.getInt(getString(R.string.pref_week), 1);
-        dayIndex = preferences.getInt(getString(R.string.pref_day), 2);
-        weekSpinner.setSelection(weekIndex - 1);
-        daySpinner.setSelection(dayIndex - 1);
-        setDay(weekIndex, dayIndex);
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        return true;
+    }
 
-        // When the app loads, no day should be running
-        started = false;
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_progress) {
+            startActivity(new Intent(this, ProgressActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
 
-        // setup a pending intent for the notification that will open the already-running app
-        Intent intent = new Intent(this, MainActivity.class);
-        intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-        pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    @Override
+    protected void onStart() {
+        super.onStart();
+        visible = true;
 
+        // Bind to the workout service to render the state of the workout while visible
+        bindService(new Intent(this, WorkoutService.class), connection, Context.BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        // Write the selected day now, as the process may not get the chance later
+        if (settings != null) {
+            settings.flush();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // Nothing needs to be drawn while the activity isn't visible
+        visible = false;
+        progressRenderer.stop();
+
+        if (service != null) {
+            service.setWorkoutListener(null);
+            service = null;
+        }
+        unbindService(connection);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dayLoader.shutdown();
+    }
+
+    /**
+     * Shows the stages with the given table from now on, starting with the idle drawable. The
+     * table is made once as the activity is created, so a workout never mutates a drawable.
+     */
+    void setRenderTable(StageRenderTable table) {
+        renderTable = table;
+        timerProgressBar.setProgressDrawable(renderTable.getIdleDrawable());
+    }
+
+    /**
+     * Changes to the program at the given index of the registry, stopping any workout that is
+     * running, and opens its first day.
+     */
+    private void setProgram(int index) {
+
+        if (service != null && service.isStarted()) {
+            service.stop();
+        }
+
+        settings.setSelectedProgram(programs.getId(index));
+        program = programs.getProgram(index);
+        showWeeks();
+        if (weeks.length == 0) {
+            return;
+        }
+        // The new program's first day may have the same numbers as the open day, so always load it
+        weekIndex = 0;
+        dayIndex = 0;
+        selectDay(weeks[0], program.getDay(0));
+        setDay(weeks[0], program.getDay(0));
+    }
+
+    /**
+     * Fills the program dropdown from the registry, which is only shown if there is more than
+     * the built-in program, and the week dropdown from the selected program.
+     */
+    private void showPrograms() {
+        int selected = programs.indexOf(settings.getSelectedProgram());
+        program = programs.getProgram(selected);
+
+        String[] names = new String[programs.numberOfPrograms()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = programs.getName(i);
+        }
+        programSpinner.setAdapter(newAdapter(names));
+        programSpinner.setSelection(selected);
+        programSpinner.setVisibility(names.length > 1 ? View.VISIBLE : View.GONE);
+
+        showWeeks();
+    }
+
+    private void showWeeks() {
+        weeks = ProgramRegistry.weeksOf(program);
+        String[] labels = new String[weeks.length];
+        for (int i = 0; i < weeks.length; i++) {
+            labels[i] = getString(R.string.week_label, weeks[i]);
+        }
+        weekSpinner.setAdapter(newAdapter(labels));
+    }
+
+    private void showDays(int week) {
+        days = ProgramRegistry.daysOf(program, week);
+        String[] labels = new String[days.length];
+        for (int i = 0; i < days.length; i++) {
+            labels[i] = getString(R.string.day_label, days[i]);
+        }
+        daySpinner.setAdapter(newAdapter(labels));
+    }
+
+    private ArrayAdapter<String> newAdapter(String[] labels) {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, labels);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        return adapter;
     }
 
     /**
-     * Changes the day to the given week/day.
+     * Selects the given week and day in the dropdowns, without loading the day.
+     */
+    private void selectDay(int week, int day) {
+        if (programs == null) {
+            return;
+        }
+        int weekPosition = Math.max(0, Arrays.binarySearch(weeks, week));
+        if (weekPosition < weeks.length) {
+            weekSpinner.setSelection(weekPosition);
+            showDays(weeks[weekPosition]);
+            daySpinner.setSelection(Math.max(0, Arrays.binarySearch(days, day)));
+        }
+    }
+
+    /**
+     * Changes the day to the given week/day. The day is loaded in the background, and the
+     * views are updated once it has been loaded.
      *
      * @param week the week to select the day from.
      * @param day  the day to select.
      */
     private void setDay(int week, int day) {
 
+        // Reselecting the day that is open or loading, such as when the day spinner follows the
+        // week spinner or the spinners are restored, changes nothing
+        if (week == weekIndex && day == dayIndex) {
+            return;
+        }
+
+        boolean started = service != null && service.isStarted();
+
         /*
          * If there was a day already running when the day was changed, stop the other day before
          * opening the new one.
          */
         if (started) {
-            toggleStart();
+            service.stop();
         }
 
-        /*
-         * Update the shared preferences day and week items. This will save the most recent day and week
-         * so that the next time the app opens, the same week and day will be opened.
-         */
-        SharedPreferences preferences = getSharedPreferences(getString(R.string.pref_key), Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putInt(getString(R.string.pref_day), day);
-        editor.putInt(getString(R.string.pref_week), week);
-        editor.apply();
-
         // Update the day and week state variables.
         weekIndex = week;
         dayIndex = day;
 
-        // Change the day and update the summary and the seekbar to reflect the new number of stages.
-        this.day = new Day(week, day, this);
-        summaryTV.setText(this.day.getDescription());
-        stageSeekBar.setMax(this.day.numberOfStages() - 1);
+        // Don't allow the old day to be started or completed while the new one loads
+        dayLoading = true;
+        startButton.setEnabled(false);
+        completeButton.setEnabled(false);
+        dayLoader.load(week, day, this);
 
-        // Update the complete/incomplete button and textview to match the completedness of the new day.
-        if (this.day.isComplete()) {
-            completeTV.setText(R.string.complete);
-            completeButton.setText(R.string.mark_incomplete);
-        } else {
-            completeTV.setText(R.string.incomplete);
-            completeButton.setText(R.string.mark_complete);
-        }
+        // Open the same day the next time the app opens
+        settings.setSelectedDay(week, day);
 
     }
 
     /**
-     * Moves on to the next stage. If there are no more stages, ends the day and marks it complete.
+     * Called on the main thread with the most recently requested day once it has been loaded.
      */
-    private void increaseStage() {
-
-        // Vibrate for 500 milliseconds (Different methods for newer OS levels)
-        Vibrator v = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            v.vibrate(VibrationEffect.createOneShot(500, VibrationEffect.DEFAULT_AMPLITUDE));
-        } else {
-            v.vibrate(500);
-        }
-
-        // If the current stage is the last stage of the day, then finish the day.
-        if (day.getStageNumber() + 1 == day.numberOfStages()) {
-
-            // Stop the day
-            if (started) {
-                toggleStart();
-            }
-
-            // If the day was incomplete, mark it completed.
-            if (!day.isComplete()) {
-                toggleComplete();
-            }
-
-        } else {
-
-            // get the next stage
-            stage = day.getNext();
+    @Override
+    public void onDayLoaded(int week, int day, Day loaded) {
 
-            // Update the seek bar, stage textview, and the timer to the new stage
-            stageSeekBar.setProgress(day.getStageNumber());
-            timer.resetTo(stage.getLength());
-            timerRunning = true;
-            this.stageTV.setText(stage.getStageType().toString());
+        weekIndex = week;
+        dayIndex = day;
+        this.day = loaded;
+        dayLoading = false;
 
-            // Set the progress bar to the appropriate color
-            timerProgressBar.getProgressDrawable().setColorFilter(stage.getStageType().getColor(), PorterDuff.Mode.SRC_IN);
+        // A day loaded while the activity is stopped is shown when it starts again
+        if (visible) {
+            showDay();
         }
     }
 
     /**
-     * Moves to the previous stage.
+     * Called on the main thread if the most recently requested day couldn't be loaded. The day
+     * that was open before stays open, and is selected and saved again.
      */
-    private void decreaseStage() {
-
-        // Get the previous stage
-        stage = day.getPrevious();
+    @Override
+    public void onDayLoadFailed(int week, int day, RuntimeException error) {
+        error.printStackTrace();
+        dayLoading = false;
+        Toast.makeText(this, R.string.day_load_failed, Toast.LENGTH_SHORT).show();
+
+        weekIndex = this.day.getWeekNumber();
+        dayIndex = this.day.getDayNumber();
+        selectDay(weekIndex, dayIndex);
+        settings.setSelectedDay(weekIndex, dayIndex);
+        if (visible) {
+            showDay();
+        }
+    }
 
-        // Update the seek bar, stage textview, and the timer to the new stage
-        stageSeekBar.setProgress(day.getStageNumber());
-        timer.resetTo(stage.getLength());
-        timerRunning = true;
-        this.stageTV.setText(stage.getStageType().toString());
+    /**
+     * Updates the summary, the totals, the seekbar and the complete button and textview to match
+     * the day.
+     */
+    private void showDay() {
+        summaryTV.setText(day.getDescription());
+        dayLengthMillis = day.getStageIndex().getLength();
+        dayTotalsTV.setText(getString(R.string.day_totals, minutes(dayLengthMillis / 1000),
+                minutes(day.getRunSeconds()), minutes(day.getWalkSeconds())));
+        stageSeekBar.setMax(day.numberOfStages() - 1);
+        showComplete(day.isComplete());
+
+        // Until the day is started, all of it is left
+        if (service == null || !service.isStarted()) {
+            showDayTime(0);
+        }
 
-        // Set the progress bar to the appropriate color
-        timerProgressBar.getProgressDrawable().setColorFilter(stage.getStageType().getColor(), PorterDuff.Mode.SRC_IN);
+        // The open day can't be started or completed while another is loading in its place, and
+        // a day that couldn't be read has nothing to start
+        startButton.setEnabled(!dayLoading && day.numberOfStages() > 0);
+        completeButton.setEnabled(!dayLoading);
     }
 
     /**
-     * Pauses or plays the timer, depending on the state of timerRunning. Updates the pauseButton's
-     * text and the progress bar appropriately.
+     * Has the service resume the workout of the loaded checkpoint, once both the checkpoint has
+     * been loaded and the service is bound. A workout the service is already running, or a day
+     * chosen in the meantime, wins.
      */
-    private void togglePause() {
+    private void resumeWorkout() {
+        if (resumable == null || service == null) {
+            return;
+        }
+        boolean sameDay = day.getWeekNumber() == resumable.getWeek() && day.getDayNumber() == resumable.getDay();
+        if (!service.isStarted() && sameDay) {
+            service.resume(day, resumable);
+        }
+        resumable = null;
+    }
 
-        // Toggle the timer
-        timerRunning = !timerRunning;
-        timer.setRunning(timerRunning);
+    /**
+     * Updates every view to match the state of the workout service in one step, as the service
+     * may have been running a workout while the activity was stopped or destroyed, and nothing
+     * was shown in the meantime.
+     */
+    private void syncWithService() {
+
+        // Show the day that the service is running, rather than the saved day
+        if (service.isStarted() && service.getDay() != day) {
+            Day running = service.getDay();
+            dayLoader.cancel();
+            dayLoading = false;
+            selectDay(running.getWeekNumber(), running.getDayNumber());
+            day = running;
+            weekIndex = running.getWeekNumber();
+            dayIndex = running.getDayNumber();
+        }
+        if (day != null) {
+            showDay();
+        }
 
-        // Update the pausebutton text and the color of the progress bar
-        if (timerRunning) {
-            pauseButton.setText(R.string.pause);
-            timerProgressBar.getProgressDrawable().setColorFilter(stage.getStageType().getColor(), PorterDuff.Mode.SRC_IN);
-        } else {
-            pauseButton.setText(R.string.resume);
-            timerProgressBar.getProgressDrawable().setColorFilter(Color.GRAY, PorterDuff.Mode.SRC_IN);
+        if (!service.isStarted()) {
+            showStopped();
+            return;
         }
 
+        showStage(service.getStage(), service.getDay().getStageNumber());
+        showRunning(service.isTimerRunning());
+        showTime(service.getRemainingTime());
+        progressRenderer.start(service.getTimer());
     }
 
     /**
      * Toggles the completeness of a day. Updates the completeButton and complete textview text appropriately.
      */
     private void toggleComplete() {
-
-        if (day.isComplete()) {
-            day.setComplete(false);
-            completeButton.setText(R.string.mark_complete);
-            completeTV.setText(R.string.incomplete);
-        } else {
-            day.setComplete(true);
-            completeButton.setText(R.string.mark_incomplete);
-            completeTV.setText(R.string.complete);
-        }
-
+        day.setComplete(!day.isComplete());
+        showComplete(day.isComplete());
     }
 
     /**
-     * Starts or stops the current day, depending on the current state of 'started.'
+     * Starts or stops the current day, depending on whether the service is running a workout.
      */
     private void toggleStart() {
 
-        // Toggle started and reset the day
-        started = !started;
-        day.reset();
-
-        if (started) {
+        if (service == null) {
+            return;
+        }
 
-            /*
-             * If the day is now started, increase stage to get the first stage, then update the start
-             * button to say stop, and enable the timer buttons.
-             */
-            increaseStage();
-            startButton.setText(R.string.stop);
-            pauseButton.setEnabled(true);
-            plusButton.setEnabled(true);
-            minusButton.setEnabled(true);
+        if (service.isStarted()) {
+            service.stop();
         } else {
-
-            /*
-             * If the day is now stopped, then update the start button to say start, and disable the
-             * timer buttons. Stop the timer, reset the progress bar and cancel the notification.
-             */
-            startButton.setText(R.string.start);
-            timer.setRunning(false);
-            timerRunning = false;
-            timerTV.setText(R.string.zero_time);
-            pauseButton.setEnabled(false);
-            plusButton.setEnabled(false);
-            minusButton.setEnabled(false);
-
-            // Animate the progress bar if the API level is high enough
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                this.timerProgressBar.setProgress(0, true);
-            } else {
-                this.timerProgressBar.setProgress(0);
-            }
-
-            timerProgressBar.getProgressDrawable().setColorFilter(Color.GRAY, PorterDuff.Mode.SRC_IN);
-
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
-            notificationManager.cancelAll();
+            service.start(day);
         }
     }
 
-    /**
-     * Updates the notification (Or creates one if there is not yet a notification) to match the current
-     * timer state and stage.
-     * @param secondsRemaining
+    /*
+     * Workout events. These only reach the activity while it is bound to the service, which is
+     * between onStart and onStop, but an event already on its way when the activity stops is
+     * dropped here too.
      */
-    private void buildNotification(int secondsRemaining) {
 
-        // Calculate the minutes and seconds remaining from the seconds remaining.
-        int minutes = secondsRemaining / 60;
-        int seconds = secondsRemaining % 60;
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber) {
+        if (!visible) {
+            return;
+        }
+        showStage(stage, stageNumber);
+        progressRenderer.start(service.getTimer());
+    }
 
-        // Build the notification
-        NotificationCompat.Builder mBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(R.drawable.ic_launcher_foreground)
-                .setContentTitle(String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds))
-                .setContentText(stage.getStageType().toString())
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setShowWhen(false)
-                .setContentIntent(pendingIntent);
+    @Override
+    public void onPauseChanged(boolean running) {
+        if (!visible) {
+            return;
+        }
+        showRunning(running);
 
-        // Send the notification
-        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
-        notificationManager.notify(NOTIFICATION_ID, mBuilder.build());
+        // Render the progress while running, or once to show exactly where it was paused
+        progressRenderer.start(service.getTimer());
     }
 
     @Override
-    public void onTimerRestart() {
-        decreaseStage();
+    public void onWorkoutStopped() {
+        if (!visible) {
+            return;
+        }
+        showStopped();
     }
 
     @Override
-    public void onTimerFinish() {
-        increaseStage();
+    public void onCompleteChanged(boolean complete) {
+        if (!visible) {
+            return;
+        }
+        showComplete(complete);
     }
 
     @Override
     public void onTimerTick(long millisLeft) {
-        long minutes = millisLeft / 1000 / 60;
-        long seconds = (millisLeft / 1000) % 60;
+        if (!visible) {
+            return;
+        }
+        showTime(millisLeft);
+
+        // A paused timer is not rendered every frame, so render its adjusted progress once
+        if (!service.getTimer().isRunning()) {
+            progressRenderer.start(service.getTimer());
+        }
+    }
+
+    /*
+     * Showing the state of the workout in the views
+     */
+
+    /**
+     * Shows the stage that the workout is on, with the timer buttons enabled.
+     */
+    private void showStage(Stage stage, int stageNumber) {
+
+        /*
+         * Update the start button to say stop, and enable the timer buttons.
+         */
+        startButton.setText(R.string.stop);
+        pauseButton.setText(R.string.pause);
+        pauseButton.setEnabled(true);
+        plusButton.setEnabled(true);
+        minusButton.setEnabled(true);
+
+        // Update the seek bar and stage textview to the new stage
+        stageSeekBar.setEnabled(true);
+        stageSeekBar.setProgress(stageNumber);
+        this.stageTV.setText(renderTable.getLabel(stage.getStageType()));
+
+        // Keep where the stage ends in the running day, for the day's time on each tick
+        StageIndex timeline = service.getDay().getStageIndex();
+        stageEndMillis = timeline.getEnd(stageNumber);
+        dayLengthMillis = timeline.getLength();
+        showDayTime(stageEndMillis - service.getRemainingTime());
+
+        // Set the progress bar to the appropriate color
+        timerProgressBar.setProgressDrawable(renderTable.getDrawable(stage.getStageType()));
+    }
+
+    /**
+     * Updates the pauseButton's text and the progress bar to match whether the timer is running.
+     */
+    private void showRunning(boolean running) {
+
+        // Update the pausebutton text and the color of the progress bar
+        if (running) {
+            pauseButton.setText(R.string.pause);
+            timerProgressBar.setProgressDrawable(renderTable.getDrawable(service.getStage().getStageType()));
+        } else {
+            pauseButton.setText(R.string.resume);
+            timerProgressBar.setProgressDrawable(renderTable.getIdleDrawable());
+        }
+    }
 
-        // Update the timer text view to match the timer
-        this.timerTV.setText(String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds));
+    /**
+     * Shows that no workout is running, with the timer reset and its buttons disabled.
+     */
+    private void showStopped() {
+
+        /*
+         * Update the start button to say start, and disable the timer buttons. Reset the
+         * timer text and the progress bar.
+         */
+        startButton.setText(R.string.start);
+        timerTV.setText(R.string.zero_time);
+        timeFormatter.reset();
+        showDayTime(0);
+        pauseButton.setText(R.string.pause);
+        pauseButton.setEnabled(false);
+        plusButton.setEnabled(false);
+        minusButton.setEnabled(false);
+        stageSeekBar.setEnabled(false);
+        progressRenderer.stop();
 
         // Animate the progress bar if the API level is high enough
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            this.timerProgressBar.setProgress((int) (PROGRESS_SUBDIVISIONS - PROGRESS_SUBDIVISIONS * (millisLeft / 1000) / stage.getLength()), true);
+            this.timerProgressBar.setProgress(0, true);
+        } else {
+            this.timerProgressBar.setProgress(0);
+        }
+
+        timerProgressBar.setProgressDrawable(renderTable.getIdleDrawable());
+    }
+
+    private void showComplete(boolean complete) {
+        if (complete) {
+            completeTV.setText(R.string.complete);
+            completeButton.setText(R.string.mark_incomplete);
+        } else {
+            completeTV.setText(R.string.incomplete);
+            completeButton.setText(R.string.mark_complete);
+        }
+    }
+
+    /**
+     * Updates the timer text view to match the timer, and the time through the day to match,
+     * if the shown second has changed.
+     */
+    private void showTime(long millisLeft) {
+        if (timeFormatter.format(millisLeft)) {
+            setTime(timerTV, timeFormatter);
+        }
+        showDayTime(stageEndMillis - millisLeft);
+    }
+
+    /**
+     * Updates the time through the day and the time left in it, if either shown second has
+     * changed.
+     *
+     * @param elapsed the time since the start of the day, in milliseconds.
+     */
+    private void showDayTime(long elapsed) {
+        if (dayElapsedFormatter.format(elapsed)) {
+            setTime(dayElapsedTV, dayElapsedFormatter);
+        }
+
+        // Round the time left up, so that it agrees with the elapsed time shown beside it
+        if (dayRemainingFormatter.format(dayLengthMillis - elapsed + 999)) {
+            setTime(dayRemainingTV, dayRemainingFormatter);
+        }
+    }
+
+    /**
+     * Shows a formatted time in a text view. The view keeps its text in an editable buffer that
+     * each new second is copied into, so no wrapper or String is made for it on every tick. Text
+     * set from anywhere else replaces the buffer, and the next time shown sets one up again.
+     */
+    private static void setTime(TextView view, TimeFormatter formatter) {
+        CharSequence text = view.getText();
+        if (text instanceof Editable) {
+            ((Editable) text).replace(0, text.length(), formatter);
         } else {
-            this.timerProgressBar.setProgress((int) (PROGRESS_SUBDIVISIONS - PROGRESS_SUBDIVISIONS * (millisLeft / 1000) / stage.getLength()));
+            view.setText(formatter, TextView.BufferType.EDITABLE);
         }
+    }
 
-        // Update the notification.
-        buildNotification((int) (millisLeft / 1000));
+    /**
+     * Returns the given number of seconds in whole minutes, rounded to the nearest.
+     */
+    private static int minutes(long seconds) {
+        return (int) ((seconds + 30) / 60);
     }
 }
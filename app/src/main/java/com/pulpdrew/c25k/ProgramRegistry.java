@@ -0,0 +1,132 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Every program that can be run: the built-in Couch to 5K plan, and any program files (see
+ * ProgramFile) that have been put in the "programs" directory of the app's files. Each program
+ * file is indexed when the registry is made, but its days are only read when they are opened.
+ *
+ * Programs are identified by the name of their file, and the built-in plan by BUILT_IN.
+ */
+class ProgramRegistry {
+
+    static final String BUILT_IN = "";
+    private static final String DIRECTORY = "programs";
+
+    private final String[] ids;
+    private final String[] names;
+    private final Program[] programs;
+
+    /**
+     * Finds and indexes the programs, which reads the program files, so it should not be called
+     * on the main thread.
+     */
+    ProgramRegistry(Context context) {
+
+        ArrayList<String> ids = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Program> programs = new ArrayList<>();
+
+        ids.add(BUILT_IN);
+        names.add(context.getString(R.string.built_in_program));
+        programs.add(AppData.getPlan(context));
+
+        File[] files = new File(context.getFilesDir(), DIRECTORY).listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.getName().endsWith(ProgramFile.EXTENSION)) {
+                    continue;
+                }
+                try {
+                    ProgramFile program = ProgramFile.open(file);
+                    ids.add(file.getName());
+                    names.add(program.getName().isEmpty() ? file.getName() : program.getName());
+                    programs.add(program);
+                } catch (IOException e) {
+                    // Leave out a program that can't be read
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        this.ids = ids.toArray(new String[ids.size()]);
+        this.names = names.toArray(new String[names.size()]);
+        this.programs = programs.toArray(new Program[programs.size()]);
+    }
+
+    int numberOfPrograms() {
+        return programs.length;
+    }
+
+    /**
+     * Returns the index of the program with the given id, or of the built-in plan if there is no
+     * such program any more.
+     */
+    int indexOf(String id) {
+        int index = Arrays.asList(ids).indexOf(id);
+        return Math.max(index, 0);
+    }
+
+    /*
+     * The id, name and program at each index
+     */
+
+    String getId(int index) {
+        return ids[index];
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    Program getProgram(int index) {
+        return programs[index];
+    }
+
+    /**
+     * Returns the program with the given id, or the built-in plan if there is no such program.
+     */
+    Program getProgram(String id) {
+        return programs[indexOf(id)];
+    }
+
+    /**
+     * Returns each week of the program, in order.
+     */
+    static int[] weeksOf(Program program) {
+        int[] weeks = new int[program.numberOfDays()];
+        int count = 0;
+        for (int i = 0; i < program.numberOfDays(); i++) {
+            if (count == 0 || program.getWeek(i) != weeks[count - 1]) {
+                weeks[count++] = program.getWeek(i);
+            }
+        }
+        return Arrays.copyOf(weeks, count);
+    }
+
+    /**
+     * Returns each day of the given week of the program, in order.
+     */
+    static int[] daysOf(Program program, int week) {
+        int first = 0;
+        while (first < program.numberOfDays() && program.getWeek(first) < week) {
+            first++;
+        }
+        int end = first;
+        while (end < program.numberOfDays() && program.getWeek(end) == week) {
+            end++;
+        }
+        int[] days = new int[end - first];
+        for (int i = first; i < end; i++) {
+            days[i - first] = program.getDay(i);
+        }
+        return days;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pulpdrew.c25k;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.app.AppCompatActivity;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shows the progress through the whole program: how much of it is done, which day is next, and
+ * a grid of every day, followed by the stats of the training done so far. The plan, the
+ * completed days and the stats snapshot are read in the background, and the whole screen is
+ * filled in at once when they have been.
+ */
+public class ProgressActivity extends AppCompatActivity {
+
+    private TextView summaryTV, nextTV, statsTV;
+    private ProgressBar programProgressBar;
+    private ProgressGridView gridView;
+
+    private ExecutorService executor;
+    private Handler mainHandler;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_progress);
+
+        summaryTV = findViewById(R.id.tv_progress_summary);
+        nextTV = findViewById(R.id.tv_progress_next);
+        programProgressBar = findViewById(R.id.pb_program);
+        gridView = findViewById(R.id.grid_progress);
+        statsTV = findViewById(R.id.tv_stats);
+
+        executor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+        load();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executor.shutdown();
+    }
+
+    /**
+     * Reads the plan and the completed days on the background thread, then shows them.
+     */
+    private void load() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Plan plan = AppData.getPlan(ProgressActivity.this);
+                final PlanProgress progress = new PlanProgress(plan, AppData.getHistory(ProgressActivity.this).getCompleted(plan));
+                final SessionStats stats = AppData.getStats(ProgressActivity.this);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isFinishing()) {
+                            show(plan, progress);
+                            showStats(stats);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void show(Plan plan, PlanProgress progress) {
+
+        summaryTV.setText(getString(R.string.progress_summary, progress.getPercentComplete(),
+                progress.numberOfComplete(), progress.numberOfDays()));
+        programProgressBar.setMax(progress.numberOfDays());
+        programProgressBar.setProgress(progress.numberOfComplete());
+
+        int next = progress.nextIncomplete();
+        if (next < 0) {
+            nextTV.setText(R.string.progress_all_complete);
+        } else {
+            nextTV.setText(getString(R.string.progress_next, plan.getWeek(next), plan.getDay(next)));
+        }
+
+        gridView.setProgress(plan, progress);
+    }
+
+    /**
+     * Shows the stats. They are read here, on the main thread, as that is where they change.
+     */
+    private void showStats(SessionStats stats) {
+        long now = SessionStats.localTime();
+        String[] lines = {
+                getString(R.string.stats_run_time, minutes(stats.getWeekRunMillis(now)),
+                        minutes(stats.getStageMillis(Stage.StageType.RUN))),
+                getString(R.string.stats_other_time, minutes(stats.getStageMillis(Stage.StageType.WALK)),
+                        minutes(stats.getStageMillis(Stage.StageType.WARM_UP) + stats.getStageMillis(Stage.StageType.COOL_DOWN))),
+                getString(R.string.stats_sessions, stats.numberOfFinished(), stats.numberOfStopped(),
+                        stats.getFinishedPercent()),
+                getString(R.string.stats_weeks, stats.getWeeklyAdherence(now), stats.getCurrentStreak(now),
+                        stats.getLongestStreak()),
+                getString(R.string.stats_adjustments, stats.numberOfAddedMinutes(), stats.numberOfSubtractedMinutes(),
+                        stats.numberOfSeeks(), stats.numberOfPauses())
+        };
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(line);
+        }
+        statsTV.setText(text);
+    }
+
+    private static long minutes(long millis) {
+        return millis / 60000;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Draws every day of the plan as a grid, with a row for each week and a column for each day.
+ * Complete days are filled in and the next day to do is outlined. The whole grid is a single
+ * view that draws its cells itself, so showing it takes one measure and one draw rather than a
+ * layout pass over a view for every day.
+ */
+class ProgressGridView extends View {
+
+    private static final float CELL_HEIGHT_DP = 56;
+    private static final float CELL_MARGIN_DP = 4;
+    private static final float TEXT_SIZE_SP = 12;
+
+    private final float cellHeight, margin;
+    private final Paint completePaint, incompletePaint, nextPaint, textPaint, completeTextPaint;
+    private final RectF cell = new RectF();
+
+    private Plan plan;
+    private PlanProgress progress;
+    private int weeks, days;
+
+    // The two lines of text in each day's cell, made once when the progress is set
+    private String[] titles, details;
+
+    public ProgressGridView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        float density = getResources().getDisplayMetrics().density;
+        cellHeight = CELL_HEIGHT_DP * density;
+        margin = CELL_MARGIN_DP * density;
+
+        int accent = ContextCompat.getColor(context, R.color.colorAccent);
+        int primary = ContextCompat.getColor(context, R.color.colorPrimary);
+
+        completePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        completePaint.setColor(primary);
+
+        incompletePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        incompletePaint.setColor(Color.LTGRAY);
+        incompletePaint.setStyle(Paint.Style.STROKE);
+        incompletePaint.setStrokeWidth(density);
+
+        nextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        nextPaint.setColor(accent);
+        nextPaint.setStyle(Paint.Style.STROKE);
+        nextPaint.setStrokeWidth(3 * density);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(Color.DKGRAY);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTextSize(TEXT_SIZE_SP * getResources().getDisplayMetrics().scaledDensity);
+
+        completeTextPaint = new Paint(textPaint);
+        completeTextPaint.setColor(Color.WHITE);
+    }
+
+    /**
+     * Shows the progress through the given plan.
+     */
+    void setProgress(Plan plan, PlanProgress progress) {
+        this.plan = plan;
+        this.progress = progress;
+
+        // The grid is as big as the last week and the longest week
+        int count = plan.numberOfDays();
+        weeks = count > 0 ? plan.getWeek(count - 1) : 0;
+        days = 0;
+        titles = new String[count];
+        details = new String[count];
+        for (int i = 0; i < count; i++) {
+            days = Math.max(days, plan.getDay(i));
+            titles[i] = getContext().getString(R.string.progress_cell_title, plan.getWeek(i), plan.getDay(i));
+            details[i] = getContext().getString(R.string.progress_cell_detail, plan.getRunSeconds(i) / 60);
+        }
+
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = (int) Math.ceil(weeks * cellHeight) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (plan == null || days == 0) {
+            return;
+        }
+
+        float cellWidth = (getWidth() - getPaddingLeft() - getPaddingRight()) / (float) days;
+        float textOffset = textPaint.getTextSize() * 0.5f;
+        int next = progress.nextIncomplete();
+
+        for (int i = 0; i < plan.numberOfDays(); i++) {
+            float left = getPaddingLeft() + (plan.getDay(i) - 1) * cellWidth;
+            float top = getPaddingTop() + (plan.getWeek(i) - 1) * cellHeight;
+            cell.set(left + margin, top + margin, left + cellWidth - margin, top + cellHeight - margin);
+
+            boolean complete = progress.isComplete(i);
+            canvas.drawRect(cell, complete ? completePaint : i == next ? nextPaint : incompletePaint);
+
+            Paint text = complete ? completeTextPaint : textPaint;
+            canvas.drawText(titles[i], cell.centerX(), cell.centerY() - textOffset * 0.5f, text);
+            canvas.drawText(details[i], cell.centerX(), cell.centerY() + textOffset * 2, text);
+        }
+    }
+}
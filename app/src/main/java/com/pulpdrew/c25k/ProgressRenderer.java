@@ -0,0 +1,75 @@
+package com.pulpdrew.c25k;
+
+import android.view.Choreographer;
+import android.widget.ProgressBar;
+
+/**
+ * Moves a progress bar smoothly through the current stage, one frame at a time. On every vsync
+ * the progress is interpolated from the timer's deadline, and the bar is only updated when that
+ * moves it by at least a pixel. The renderer only runs while it is started, so it should be
+ * stopped whenever the bar isn't visible.
+ */
+class ProgressRenderer implements Choreographer.FrameCallback {
+
+    private final ProgressBar progressBar;
+    private final Choreographer choreographer;
+
+    private Timer timer;
+    private boolean posted;
+    private int lastPixel;
+
+    ProgressRenderer(ProgressBar progressBar) {
+        this.progressBar = progressBar;
+        this.choreographer = Choreographer.getInstance();
+        this.lastPixel = -1;
+    }
+
+    /**
+     * Starts rendering the progress of the given timer, or renders it once if it is paused.
+     */
+    void start(Timer timer) {
+        this.timer = timer;
+        lastPixel = -1;
+        if (!posted) {
+            posted = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Stops rendering. The bar is left as it is.
+     */
+    void stop() {
+        timer = null;
+        if (posted) {
+            posted = false;
+            choreographer.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        if (timer == null) {
+            return;
+        }
+
+        // Work out how far through the stage the timer is
+        long duration = timer.getDuration();
+        double fraction = duration > 0 ? 1.0 - (double) timer.getRemainingTime() / duration : 0;
+
+        // Only touch the bar if the end of the progress has moved by a pixel
+        int width = progressBar.getWidth() - progressBar.getPaddingLeft() - progressBar.getPaddingRight();
+        int pixel = (int) (fraction * width);
+        if (pixel != lastPixel) {
+            lastPixel = pixel;
+            progressBar.setProgress((int) (fraction * progressBar.getMax()));
+        }
+
+        // Keep rendering while the timer runs. A paused timer only needs the one frame.
+        if (timer.isRunning()) {
+            posted = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+}
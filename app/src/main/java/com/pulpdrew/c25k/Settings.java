@@ -0,0 +1,124 @@
+package com.pulpdrew.c25k;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Typed store for the app's settings. The settings are read once, kept in memory, and written
+ * back to the SharedPreferences in a single batch. A change waits for a quiet period before it
+ * is written, so that flicking through the week and day spinners costs one write rather than
+ * one per selection, and flush writes anything waiting straight away.
+ *
+ * The store is read on a background thread by AppData.getSettings, and changed on the main thread.
+ */
+class Settings {
+
+    // How long a change waits for more changes before it is written
+    static final long WRITE_DELAY_MILLIS = 2000;
+
+    // The week and day when none has been selected yet
+    private static final int NONE = 0;
+
+    private final SharedPreferences preferences;
+    private final String programKey, weekKey, dayKey;
+    private final Handler handler;
+
+    // The selected program and its most recently selected day, and whether they have been written
+    private String program;
+    private int week, day;
+    private boolean dirty;
+
+    private final Runnable write = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Reads the settings in, which reads the preferences file, so it should not be called on the
+     * main thread.
+     */
+    Settings(Context context) {
+        this.preferences = context.getSharedPreferences(context.getString(R.string.pref_key), Context.MODE_PRIVATE);
+        this.programKey = context.getString(R.string.pref_program);
+        this.weekKey = context.getString(R.string.pref_week);
+        this.dayKey = context.getString(R.string.pref_day);
+        this.handler = new Handler(Looper.getMainLooper());
+        this.program = preferences.getString(programKey, ProgramRegistry.BUILT_IN);
+        this.week = preferences.getInt(weekKey, NONE);
+        this.day = preferences.getInt(dayKey, NONE);
+    }
+
+    /**
+     * Returns the id of the selected program, from the ProgramRegistry.
+     */
+    synchronized String getSelectedProgram() {
+        return program;
+    }
+
+    /**
+     * Selects a different program. Its day has not been selected yet.
+     */
+    synchronized void setSelectedProgram(String program) {
+        if (program.equals(this.program)) {
+            return;
+        }
+        this.program = program;
+        this.week = NONE;
+        this.day = NONE;
+        markDirty();
+    }
+
+    /*
+     * The most recently selected day, or the given default if no day has been selected
+     */
+
+    synchronized int getSelectedWeek(int defaultWeek) {
+        return week != NONE ? week : defaultWeek;
+    }
+
+    synchronized int getSelectedDay(int defaultDay) {
+        return day != NONE ? day : defaultDay;
+    }
+
+    /**
+     * Saves the given day as the most recently selected day, so that the next time the app opens
+     * the same week and day will be opened. Selecting the day that is already saved does nothing.
+     */
+    synchronized void setSelectedDay(int week, int day) {
+        if (week == this.week && day == this.day) {
+            return;
+        }
+        this.week = week;
+        this.day = day;
+        markDirty();
+    }
+
+    /**
+     * Writes any change that is waiting to be written.
+     */
+    synchronized void flush() {
+        handler.removeCallbacks(write);
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        preferences.edit()
+                .putString(programKey, program)
+                .putInt(weekKey, week)
+                .putInt(dayKey, day)
+                .apply();
+    }
+
+    private void markDirty() {
+        dirty = true;
+
+        // Wait for the selection to settle before writing it
+        handler.removeCallbacks(write);
+        handler.postDelayed(write, WRITE_DELAY_MILLIS);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pulpdrew.c25k;
+
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.widget.ProgressBar;
+
+/**
+ * Everything that shows a type of stage, worked out once rather than on every stage change: its
+ * localized label, a progress drawable already tinted in its color, and its vibration pattern.
+ * Each drawable is a mutated copy of the progress bar's own, so tinting it never touches the
+ * state shared with other drawables from the same resource. Types with the same color share a
+ * drawable, and there is one more in grey for a paused or stopped timer, so a table mutates at
+ * most one drawable for each color.
+ *
+ * Labels and drawables depend on the configuration, so the table is made again whenever the
+ * activity is. Showing a stage is then an array lookup and a drawable swap.
+ */
+class StageRenderTable {
+
+    private static final Stage.StageType[] STAGE_TYPES = Stage.StageType.values();
+
+    // The label of each type of stage, by ordinal
+    private static final int[] LABELS = {R.string.warmup, R.string.cooldown, R.string.run, R.string.walk};
+
+    // The timings of the vibration for each type of stage, by ordinal, in milliseconds off and on
+    private static final long[][] PATTERNS = {
+            {0, 350},                     // WARM_UP
+            {0, 350},                     // COOL_DOWN
+            {0, 120, 80, 120, 80, 120},   // RUN
+            {0, 600},                     // WALK
+    };
+
+    private final String[] labels = new String[STAGE_TYPES.length];
+    private final Drawable[] drawables = new Drawable[STAGE_TYPES.length];
+    private final Drawable idleDrawable;
+
+    /**
+     * Makes the table for the given progress bar, in the configuration of its resources.
+     */
+    StageRenderTable(Resources resources, ProgressBar progressBar) {
+        Drawable.ConstantState base = progressBar.getProgressDrawable().getConstantState();
+
+        for (int i = 0; i < STAGE_TYPES.length; i++) {
+            labels[i] = resources.getString(LABELS[i]);
+
+            // Reuse the drawable of an earlier type with the same color
+            int color = STAGE_TYPES[i].getColor();
+            for (int j = 0; j < i; j++) {
+                if (STAGE_TYPES[j].getColor() == color) {
+                    drawables[i] = drawables[j];
+                    break;
+                }
+            }
+            if (drawables[i] == null) {
+                drawables[i] = tinted(base, resources, color);
+            }
+        }
+        idleDrawable = tinted(base, resources, Color.GRAY);
+    }
+
+    /**
+     * Returns the label of a type of stage, in the language of the table's configuration.
+     */
+    String getLabel(Stage.StageType type) {
+        return labels[type.ordinal()];
+    }
+
+    /**
+     * Returns the progress drawable for a running stage of the given type.
+     */
+    Drawable getDrawable(Stage.StageType type) {
+        return drawables[type.ordinal()];
+    }
+
+    /**
+     * Returns the progress drawable for a timer that is paused or stopped.
+     */
+    Drawable getIdleDrawable() {
+        return idleDrawable;
+    }
+
+    /**
+     * Returns the string resource of the label of a type of stage, for places that don't keep a
+     * table, such as the notification.
+     */
+    static int labelOf(Stage.StageType type) {
+        return LABELS[type.ordinal()];
+    }
+
+    /**
+     * Returns the vibration pattern of a type of stage, in milliseconds off and on. It doesn't
+     * depend on the configuration, so it can be read without a table.
+     */
+    static long[] patternOf(Stage.StageType type) {
+        return PATTERNS[type.ordinal()];
+    }
+
+    private Drawable tinted(Drawable.ConstantState base, Resources resources, int color) {
+        Drawable drawable = base.newDrawable(resources).mutate();
+        drawable.setColorFilter(color, PorterDuff.Mode.SRC_IN);
+        return drawable;
+    }
+}
@@ -0,0 +1,137 @@
+package com.pulpdrew.c25k;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.NotificationManagerCompat;
+import android.text.format.DateFormat;
+
+import java.util.Date;
+
+/**
+ * Posts the notification for a running workout. While the timer runs, the notification counts
+ * down to the end of the stage with the system chronometer, so it only has to be posted when
+ * the stage changes, the timer is paused or resumed, or the time is adjusted, rather than on
+ * every tick. The chronometer can only count down from Android N, so before that the
+ * notification shows the time that the stage ends at instead.
+ */
+class WorkoutNotifier {
+
+    /*
+     * Identification constants
+     */
+    private static final String CHANNEL_ID = "125348";
+    private static final int NOTIFICATION_ID = 123;
+
+    private final Context context;
+    private final NotificationManagerCompat notificationManager;
+    private final PendingIntent contentIntent;
+    private final TimeFormatter timeFormatter = new TimeFormatter();
+    private int postCount;
+
+    WorkoutNotifier(Context context) {
+        this.context = context;
+        this.notificationManager = NotificationManagerCompat.from(context);
+
+        /*
+         * Set up the notification channel on Android O and above
+         */
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+
+            // Create the channel with low importance to avoid vibration or sounds
+            int importance = NotificationManager.IMPORTANCE_LOW;
+            CharSequence name = context.getString(R.string.channel_name);
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
+            channel.setDescription(context.getString(R.string.channel_description));
+
+            // Register the channel with the system
+            NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(channel);
+        }
+
+        // setup a pending intent for the notification that will open the already-running app
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        contentIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * Posts the notification for the given state and makes the service a foreground service.
+     */
+    void startForeground(Service service, Stage stage, boolean running, long millisRemaining) {
+        service.startForeground(NOTIFICATION_ID, build(stage, running, millisRemaining));
+        postCount++;
+    }
+
+    /**
+     * Posts the notification for the given state, replacing the previous one.
+     *
+     * @param stage           the current stage.
+     * @param running         whether the timer is running.
+     * @param millisRemaining the time left in the stage.
+     */
+    void post(Stage stage, boolean running, long millisRemaining) {
+        notificationManager.notify(NOTIFICATION_ID, build(stage, running, millisRemaining));
+        postCount++;
+    }
+
+    /**
+     * Returns the number of times the notification has been posted.
+     */
+    int getPostCount() {
+        return postCount;
+    }
+
+    /**
+     * Builds the notification. While running, it counts down to the end of the stage in wall
+     * clock time, or shows when the stage ends where it can't count down. While paused, it shows
+     * the time remaining.
+     */
+    private Notification build(Stage stage, boolean running, long millisRemaining) {
+
+        String label = context.getString(StageRenderTable.labelOf(stage.getStageType()));
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentText(label)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setContentIntent(contentIntent);
+
+        long stageEnd = System.currentTimeMillis() + millisRemaining;
+        if (running && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+
+            // Let the system count down to the end of the stage
+            Bundle extras = new Bundle();
+            extras.putBoolean(Notification.EXTRA_CHRONOMETER_COUNT_DOWN, true);
+            builder.setContentTitle(label)
+                    .setShowWhen(true)
+                    .setUsesChronometer(true)
+                    .setWhen(stageEnd)
+                    .addExtras(extras);
+
+        } else if (running) {
+
+            // The chronometer would count up from the end of the stage, so show when it ends
+            String end = DateFormat.getTimeFormat(context).format(new Date(stageEnd));
+            builder.setContentTitle(label)
+                    .setContentText(context.getString(R.string.stage_ends_at, end))
+                    .setShowWhen(false);
+
+        } else {
+
+            // Show the time remaining as the timer shows it
+            timeFormatter.reset();
+            timeFormatter.format(millisRemaining);
+            builder.setContentTitle(new String(timeFormatter.getBuffer(), 0, timeFormatter.length()))
+                    .setShowWhen(false);
+        }
+
+        return builder.build();
+    }
+}
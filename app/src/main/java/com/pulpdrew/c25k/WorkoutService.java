@@ -0,0 +1,385 @@
+package com.pulpdrew.c25k;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * Foreground service that owns a running workout. The workout itself is a WorkoutEngine, which
+ * the service adapts to Android: it plays the cue for each stage, keeps the notification up to
+ * date and sets the stage alarms. Keeping the session here rather than in MainActivity lets it
+ * survive the activity being backgrounded or destroyed. The activity binds to the service only
+ * to render its state.
+ *
+ * The service does not keep the CPU awake between ticks. Instead a StageScheduler keeps an exact
+ * alarm set for the next stage boundary, and sets it again as each stage starts, so that stage
+ * changes happen on time even if the device sleeps.
+ * While no activity is bound, the timer stops ticking every second, and the notification counts
+ * down on its own with the system chronometer.
+ *
+ * The cue for each stage is given a little ahead of the stage by a CueScheduler, so that its
+ * sound and vibration start as the stage does. The stage alarm goes off that far ahead of the
+ * boundary too. When it wakes the device, the service holds a wake lock until just after the
+ * boundary and plans the cue again, so the cue and the stage change both happen on time with
+ * the screen off. A BoundaryPlanner keeps the alarm and the cue planned as the workout changes.
+ *
+ * The workout counts its events in the SessionStats, which the service saves when it ends.
+ *
+ * After every change in the state of the workout, but never on a tick, the service saves a
+ * checkpoint of it. If the process is killed during a workout, MainActivity finds the checkpoint
+ * the next time it opens and resumes the workout from it.
+ */
+public class WorkoutService extends Service implements WorkoutEngine.EventSink {
+
+    /*
+     * Identification constants
+     */
+    private static final String ACTION_STAGE_END = "com.pulpdrew.c25k.action.STAGE_END";
+
+    // How long the device is kept awake after the stage boundary that an alarm woke it for
+    private static final long WAKE_MARGIN_MILLIS = 1000;
+    private static final String WAKE_LOCK_TAG = "c25k:stage";
+
+    /**
+     * Receives changes in the state of the workout for the visible UI. All methods are called on
+     * the main thread. The listener is only set while an activity is visible, so it is never
+     * sent ticks, or any other event, while the app is in the background. Everything that has
+     * to happen in the background, the notification, alarms, cues and checkpoints, is done by
+     * the service whether or not there is a listener.
+     */
+    interface WorkoutListener {
+
+        /**
+         * Called when the workout moves to a new stage, including the first stage.
+         */
+        void onStageChanged(Stage stage, int stageNumber);
+
+        void onPauseChanged(boolean running);
+
+        void onTimerTick(long millisLeft);
+
+        void onWorkoutStopped();
+
+        void onCompleteChanged(boolean complete);
+    }
+
+    /**
+     * Binder returned to clients in the same process, giving them direct access to the service.
+     */
+    class LocalBinder extends Binder {
+        WorkoutService getService() {
+            return WorkoutService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+
+    private WorkoutEngine engine;
+    private WorkoutListener listener;
+
+    private WorkoutNotifier notifier;
+    private boolean foreground;
+    private BoundaryPlanner planner;
+    private CuePlayer cuePlayer;
+    private CheckpointFile checkpointFile;
+    private StatsFile statsFile;
+    private PowerManager.WakeLock wakeLock;
+
+    // Set while the workout is being moved through the day, which always ends with onTimerAdjusted
+    private boolean adjusting;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        notifier = new WorkoutNotifier(this);
+        checkpointFile = AppData.getCheckpointFile(this);
+        statsFile = AppData.getStatsFile(this);
+
+        // setup the alarm that wakes the service just before the end of each stage, in time for its cue
+        StageScheduler scheduler = new StageScheduler(
+                new AndroidAlarmClock(this, WorkoutService.class, ACTION_STAGE_END, MainActivity.class),
+                CueScheduler.LEAD_MILLIS);
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+        wakeLock.setReferenceCounted(false);
+
+        // setup the engine with this as its sink. Its timer only ticks while an activity is listening.
+        Clock clock = new AndroidClock();
+        engine = new WorkoutEngine(clock, this);
+        engine.setTicking(false);
+
+        // The cues run on the same clock as the engine, so they line up with its stages
+        cuePlayer = new CuePlayer(this);
+        planner = new BoundaryPlanner(engine, scheduler, new CueScheduler(clock, cuePlayer));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+
+        // The stage end alarm went off, so catch the timer up in case its ticks were held up by sleep.
+        // The posts of the cue and the timer wait out any sleep, so stay awake for them and post the cue again.
+        if (intent != null && ACTION_STAGE_END.equals(intent.getAction())) {
+            wakeLock.acquire(CueScheduler.LEAD_MILLIS + WAKE_MARGIN_MILLIS);
+            planner.onAlarm();
+        }
+
+        // If there is no workout running, there is nothing to keep the service around for
+        if (!engine.isStarted()) {
+            stopSelf(startId);
+        }
+
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        engine.getTimer().setRunning(false);
+        planner.cancel();
+        cuePlayer.release();
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    /**
+     * Sets the listener that is notified of changes to the workout, or null to remove it.
+     */
+    void setWorkoutListener(WorkoutListener listener) {
+        this.listener = listener;
+
+        // Only tick every second while there is someone to show the ticks to
+        engine.setTicking(listener != null);
+    }
+
+    /**
+     * Starts the given day from its first stage, and puts the service in the foreground so that
+     * the workout keeps running while the app is in the background.
+     */
+    void start(Day day) {
+
+        if (engine.isStarted()) {
+            engine.stop();
+        }
+
+        // Keep the service running after the activity unbinds. A service started this way has to
+        // call startForeground, which only the first stage does, so a day with no stages, which
+        // ends as soon as it starts, must not start it.
+        if (day.numberOfStages() > 0) {
+            ContextCompat.startForegroundService(this, new Intent(this, WorkoutService.class));
+        }
+        cuePlayer.load();
+        engine.setStats(AppData.getStats(this));
+
+        // The first stage posts the notification, which puts the service in the foreground
+        engine.start(day);
+    }
+
+    /**
+     * Resumes a workout that was running when the process was killed from its checkpoint, and
+     * puts the service back in the foreground. A workout that ran out while the process was dead
+     * is finished straight away.
+     */
+    void resume(Day day, Checkpoint checkpoint) {
+
+        if (engine.isStarted()) {
+            engine.stop();
+        }
+
+        // Only a workout that is still running needs the service kept running, and only its
+        // stage will post the notification that puts the service in the foreground
+        long elapsed = checkpoint.getElapsedTime(day.getStageIndex(), SystemClock.elapsedRealtime());
+        if (elapsed < day.getStageIndex().getLength()) {
+            ContextCompat.startForegroundService(this, new Intent(this, WorkoutService.class));
+        }
+        cuePlayer.load();
+        engine.setStats(AppData.getStats(this));
+
+        engine.resume(day, checkpoint);
+    }
+
+    /**
+     * Stops the running workout before it is finished.
+     */
+    void stop() {
+        engine.stop();
+    }
+
+    /**
+     * Pauses or plays the timer.
+     */
+    void togglePause() {
+        engine.togglePause();
+    }
+
+    void addMinute() {
+        adjusting = true;
+        engine.addMinute();
+        adjusting = false;
+    }
+
+    void subtractMinute() {
+        adjusting = true;
+        engine.subtractMinute();
+        adjusting = false;
+    }
+
+    /**
+     * Moves the workout to the given time through the day, in milliseconds.
+     */
+    void seekTo(long elapsed) {
+        adjusting = true;
+        engine.seekTo(elapsed);
+        adjusting = false;
+    }
+
+    /*
+     * Accessor methods
+     */
+
+    boolean isStarted() {
+        return engine.isStarted();
+    }
+
+    boolean isTimerRunning() {
+        return engine.isTimerRunning();
+    }
+
+    Day getDay() {
+        return engine.getDay();
+    }
+
+    Stage getStage() {
+        return engine.getStage();
+    }
+
+    long getRemainingTime() {
+        return engine.getRemainingTime();
+    }
+
+    /**
+     * Returns the timer of the workout, for reading its progress. It should not be changed.
+     */
+    Timer getTimer() {
+        return engine.getTimer();
+    }
+
+    /**
+     * Returns the number of times the workout notification has been posted.
+     */
+    int getNotificationPostCount() {
+        return notifier.getPostCount();
+    }
+
+    /*
+     * Engine events
+     */
+
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+
+        // Only the next boundary has an alarm, so each stage sets the one for its own end
+        planner.onStageChanged(stage, stageNumber, forward);
+
+        // A stage moved to by adjusting the time is posted and saved once the adjustment is done
+        if (!adjusting) {
+            updateNotification();
+            saveCheckpoint();
+        }
+
+        if (listener != null) {
+            listener.onStageChanged(stage, stageNumber);
+        }
+    }
+
+    @Override
+    public void onPauseChanged(boolean running) {
+        planner.plan();
+        updateNotification();
+        saveCheckpoint();
+
+        if (listener != null) {
+            listener.onPauseChanged(running);
+        }
+    }
+
+    @Override
+    public void onTimerAdjusted() {
+
+        // Adjusting the timer moves the end of the stage, so the alarm is set again
+        planner.plan();
+        updateNotification();
+        saveCheckpoint();
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+        if (listener != null) {
+            listener.onTimerTick(millisLeft);
+        }
+    }
+
+    @Override
+    public void onWorkoutFinished() {
+        planner.onWorkoutFinished();
+        if (listener != null) {
+            listener.onCompleteChanged(true);
+        }
+    }
+
+    @Override
+    public void onWorkoutEnded() {
+
+        planner.cancel();
+        cuePlayer.releaseLater();
+        stopForeground(true);
+        foreground = false;
+        stopSelf();
+
+        // Make sure the whole session is saved, and that it isn't resumed the next time the app opens
+        AppData.flushHistories();
+        statsFile.save(AppData.getStats(this));
+        checkpointFile.clear();
+
+        if (listener != null) {
+            listener.onWorkoutStopped();
+        }
+    }
+
+    /**
+     * Saves the state of the workout, if one is running, so that it can be resumed if the
+     * process is killed.
+     */
+    private void saveCheckpoint() {
+        Checkpoint checkpoint = engine.getCheckpoint();
+        if (checkpoint != null) {
+            checkpointFile.save(checkpoint);
+        }
+    }
+
+    /**
+     * Posts the notification for the current state, if a workout is running. The first post of
+     * a workout puts the service in the foreground.
+     */
+    private void updateNotification() {
+        if (!engine.isStarted()) {
+            return;
+        }
+        if (foreground) {
+            notifier.post(engine.getStage(), engine.isTimerRunning(), engine.getRemainingTime());
+        } else {
+            notifier.startForeground(this, engine.getStage(), engine.isTimerRunning(), engine.getRemainingTime());
+            foreground = true;
+        }
+    }
+}
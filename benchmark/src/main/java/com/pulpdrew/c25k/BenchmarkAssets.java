@@ -0,0 +1,61 @@
+package com.pulpdrew.c25k;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reads the app's plan assets into memory for the benchmarks. The locations are passed in as
+ * system properties by the jmh task, so that the benchmarks measure parsing and not disk access.
+ */
+class BenchmarkAssets {
+
+    private static final String EXTENSION = ".c25k";
+
+    private BenchmarkAssets() {
+    }
+
+    /**
+     * Returns the "[week]_[day].c25k" text files in the assets directory, sorted by week and day.
+     */
+    static File[] dayFiles() {
+        File[] files = new File(System.getProperty("c25k.assets")).listFiles();
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                files[count++] = file;
+            }
+        }
+        File[] days = new File[count];
+        System.arraycopy(files, 0, days, 0, count);
+        Arrays.sort(days, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                int[] x = weekAndDay(a), y = weekAndDay(b);
+                return x[0] != y[0] ? Integer.compare(x[0], y[0]) : Integer.compare(x[1], y[1]);
+            }
+        });
+        return days;
+    }
+
+    static int[] weekAndDay(File dayFile) {
+        String name = dayFile.getName();
+        String[] weekAndDay = name.substring(0, name.length() - EXTENSION.length()).split("_");
+        return new int[]{Integer.parseInt(weekAndDay[0]), Integer.parseInt(weekAndDay[1])};
+    }
+
+    static byte[] read(File file) throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    static byte[] planFile() throws IOException {
+        return read(new File(System.getProperty("c25k.planFile")));
+    }
+
+    static Plan plan() throws IOException {
+        return PlanFile.read(new ByteArrayInputStream(planFile()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up a day in the plan, and moving through its stages with getNext and getPrevious
+ * the way the workout does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DayBenchmark {
+
+    private Plan plan;
+    private File historyFile;
+    private HistoryLog history;
+    private Day day;
+
+    @Setup
+    public void setup() throws IOException {
+        plan = BenchmarkAssets.plan();
+
+        // Nothing is appended, so the log never starts its writer thread
+        historyFile = File.createTempFile("history", ".log");
+        history = new HistoryLog(historyFile);
+        history.open();
+
+        // The days of week 1 have the most stages to move through
+        day = new Day(1, 1, plan, history);
+    }
+
+    @TearDown
+    public void tearDown() {
+        historyFile.delete();
+    }
+
+    @Benchmark
+    public Day createDay() {
+        return new Day(1, 1, plan, history);
+    }
+
+    @Benchmark
+    public void navigate(Blackhole blackhole) {
+        day.reset();
+        for (int i = 0; i < day.numberOfStages(); i++) {
+            blackhole.consume(day.getNext());
+        }
+        for (int i = 0; i < day.numberOfStages(); i++) {
+            blackhole.consume(day.getPrevious());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A tick of a running workout with the time through the whole day and the time left in it
+ * worked out as MainActivity does, for days of ten, a thousand and ten thousand stages. The
+ * day's StageIndex is worked out when the plan is made, so the score should be the same for
+ * every number of stages.
+ *
+ * The stages are as long as a stage can be, so that moving between them, which is recorded in
+ * the history, is rare next to the ticks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DayTimeBenchmark implements WorkoutEngine.EventSink {
+
+    @Param({"10", "1000", "10000"})
+    public int stages;
+
+    private VirtualClock clock;
+    private File historyFile;
+    private HistoryLog history;
+    private Day day;
+    private WorkoutEngine engine;
+
+    // The end of the current stage and the length of the day, kept on each stage change as MainActivity does
+    private long stageEnd, dayLength;
+    private long dayElapsed, dayRemaining;
+
+    @Setup
+    public void setup() throws IOException {
+        short[] packed = new short[stages];
+        Stage.StageType[] types = {Stage.StageType.RUN, Stage.StageType.WALK};
+        for (int i = 0; i < stages; i++) {
+            packed[i] = Stage.pack(types[i % types.length], Stage.LENGTH_MASK);
+        }
+        Plan plan = new Plan(new int[]{1}, new int[]{1}, new String[]{""}, new short[][]{packed});
+
+        historyFile = File.createTempFile("history", ".log");
+        history = new HistoryLog(historyFile);
+        history.open();
+        day = new Day(1, 1, plan, history);
+
+        clock = new VirtualClock();
+        engine = new WorkoutEngine(clock, this);
+        engine.start(day);
+    }
+
+    @TearDown
+    public void tearDown() {
+        history.close();
+        historyFile.delete();
+    }
+
+    /**
+     * One second of the workout, and the day's time that the tick shows.
+     */
+    @Benchmark
+    public long tick() {
+        clock.advance(1000);
+        return dayElapsed + dayRemaining;
+    }
+
+    /**
+     * The engine's own time through the day and time left in it, as the simulator checks them.
+     */
+    @Benchmark
+    public long engineDayTime() {
+        clock.advance(1000);
+        return engine.getElapsedTime() + engine.getDayRemainingTime();
+    }
+
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        stageEnd = day.getStageIndex().getEnd(stageNumber);
+        dayLength = day.getStageIndex().getLength();
+    }
+
+    @Override
+    public void onPauseChanged(boolean running) {
+    }
+
+    @Override
+    public void onTimerAdjusted() {
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+        dayElapsed = stageEnd - millisLeft;
+        dayRemaining = dayLength - dayElapsed;
+    }
+
+    @Override
+    public void onWorkoutFinished() {
+    }
+
+    @Override
+    public void onWorkoutEnded() {
+
+        // Run the day again, so the ticks never run out
+        engine.start(day);
+    }
+}
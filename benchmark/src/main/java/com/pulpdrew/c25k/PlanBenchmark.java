@@ -0,0 +1,67 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the whole plan, all 24 days, from the text assets that Day used to parse one at a
+ * time and from the compiled plan file that the app reads now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PlanBenchmark {
+
+    private int[] weeks, days;
+    private byte[][] dayFiles;
+    private byte[] planFile;
+
+    @Setup
+    public void setup() throws IOException {
+        File[] files = BenchmarkAssets.dayFiles();
+        weeks = new int[files.length];
+        days = new int[files.length];
+        dayFiles = new byte[files.length][];
+        for (int i = 0; i < files.length; i++) {
+            int[] weekAndDay = BenchmarkAssets.weekAndDay(files[i]);
+            weeks[i] = weekAndDay[0];
+            days[i] = weekAndDay[1];
+            dayFiles[i] = BenchmarkAssets.read(files[i]);
+        }
+        planFile = BenchmarkAssets.planFile();
+    }
+
+    @Benchmark
+    public Plan readText() throws IOException {
+        String[] descriptions = new String[dayFiles.length];
+        short[][] stages = new short[dayFiles.length][];
+        for (int i = 0; i < dayFiles.length; i++) {
+            ArrayList<Stage> dayStages = new ArrayList<>();
+            descriptions[i] = TextPlanReader.readDay(new ByteArrayInputStream(dayFiles[i]), dayStages);
+            stages[i] = Stage.pack(dayStages);
+        }
+        return new Plan(weeks, days, descriptions, stages);
+    }
+
+    @Benchmark
+    public Plan readPlanFile() throws IOException {
+        return PlanFile.read(new ByteArrayInputStream(planFile));
+    }
+}
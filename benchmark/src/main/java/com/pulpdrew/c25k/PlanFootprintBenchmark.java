@@ -0,0 +1,93 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.IdentityHashMap;
+
+/**
+ * Measures the heap retained by the stages of the whole program in the packed layout that Plan
+ * uses, against the layout it replaced, where every stage of every day was its own Stage object.
+ * It also measures the index that a ProgramFile keeps of its days, for the program and for a
+ * long program of 2000 days, which should grow by no more than the index entries themselves.
+ * Footprint isn't a rate, so this runs on its own rather than under JMH.
+ *
+ * Run with ./gradlew :benchmark:footprint.
+ */
+public class PlanFootprintBenchmark {
+
+    // The shape of the long program: 250 weeks of 8 days
+    private static final int LONG_WEEKS = 250;
+    private static final int LONG_DAYS_PER_WEEK = 8;
+    private static final String[] TYPE_NAMES = {"WARMUP", "COOLDOWN", "RUN", "WALK"};
+
+    public static void main(String[] args) throws IOException {
+
+        Plan plan = BenchmarkAssets.plan();
+
+        // One Stage object for every stage of every day
+        Stage[][] objects = new Stage[plan.numberOfDays()][];
+
+        // A short for every stage of every day, and the plan's shared flyweights
+        short[][] packed = new short[plan.numberOfDays()][];
+        IdentityHashMap<Stage, Boolean> flyweights = new IdentityHashMap<>();
+
+        int stageCount = 0;
+        for (int i = 0; i < plan.numberOfDays(); i++) {
+            short[] stages = plan.getStages(i);
+            packed[i] = stages;
+            objects[i] = new Stage[stages.length];
+            for (int j = 0; j < stages.length; j++) {
+                objects[i][j] = new Stage(Stage.typeOf(stages[j]), Stage.lengthOf(stages[j]));
+                flyweights.put(plan.getStage(stages[j]), Boolean.TRUE);
+            }
+            stageCount += stages.length;
+        }
+
+        System.out.println(plan.numberOfDays() + " days, " + stageCount + " stages, "
+                + flyweights.size() + " distinct stages");
+        print("Stage objects", GraphLayout.parseInstance((Object) objects));
+        print("Packed stages", GraphLayout.parseInstance(packed, flyweights.keySet().toArray()));
+        print("Whole plan", GraphLayout.parseInstance(plan));
+
+        File file = File.createTempFile("footprint", ProgramFile.EXTENSION);
+        try {
+            writeProgram(plan, file, false);
+            ProgramFile program = ProgramFile.open(file);
+            print("Index " + program.numberOfDays(), GraphLayout.parseInstance(program));
+
+            writeProgram(plan, file, true);
+            program = ProgramFile.open(file);
+            print("Index " + program.numberOfDays(), GraphLayout.parseInstance(program));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes the plan out as a program file, either as it is or repeated over a long program.
+     */
+    private static void writeProgram(Plan plan, File file, boolean repeated) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            out.println("Footprint");
+            int count = repeated ? LONG_WEEKS * LONG_DAYS_PER_WEEK : plan.numberOfDays();
+            for (int n = 0; n < count; n++) {
+                int i = n % plan.numberOfDays();
+                int week = repeated ? n / LONG_DAYS_PER_WEEK + 1 : plan.getWeek(i);
+                int day = repeated ? n % LONG_DAYS_PER_WEEK + 1 : plan.getDay(i);
+                out.println("DAY " + week + " " + day + " " + plan.getDescription(i));
+                for (short stage : plan.getStages(i)) {
+                    out.println(TYPE_NAMES[Stage.typeOf(stage).ordinal()] + " " + Stage.lengthOf(stage));
+                }
+            }
+        }
+    }
+
+    private static void print(String name, GraphLayout layout) {
+        System.out.println(String.format("%-14s %8d bytes in %5d objects", name, layout.totalSize(), layout.totalCount()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording a session in the SessionStats, and saving and reading back their snapshot, after
+ * none, one and ten years of synthetic sessions have been recorded. The totals are updated in
+ * constant time, so the score should be the same for every length of history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SessionStatsBenchmark {
+
+    // Monday 1 January 2018, in milliseconds since the epoch
+    private static final long START = 1514764800000L;
+
+    @Param({"0", "1", "10"})
+    public int years;
+
+    private SessionStats stats;
+    private SyntheticSessions sessions;
+    private ByteBuffer snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        stats = new SessionStats();
+        sessions = new SyntheticSessions(BenchmarkAssets.plan(), 1, START);
+        sessions.generate(stats, years);
+        snapshot = ByteBuffer.allocate(SessionStats.SIZE);
+    }
+
+    /**
+     * Every event of the next session, from its start to its finish or stop.
+     */
+    @Benchmark
+    public int recordSession() {
+        return sessions.nextSession(stats);
+    }
+
+    /**
+     * Saving the stats as a snapshot and reading them back, as the stats screen does.
+     */
+    @Benchmark
+    public SessionStats snapshot() {
+        snapshot.clear();
+        stats.writeTo(snapshot);
+        snapshot.flip();
+        return SessionStats.readFrom(snapshot);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timer's tick and adjustment paths, driven by a VirtualClock so that a second passes on
+ * every call. The timer restarts whenever it finishes, so it never runs out of ticks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimerBenchmark implements Timer.TimerListener {
+
+    private static final int STAGE_SECONDS = 90;
+
+    private VirtualClock clock;
+    private Timer timer;
+    private long lastTick;
+
+    @Setup
+    public void setup() {
+        clock = new VirtualClock();
+        timer = new Timer(clock);
+        timer.addTimerListener(this);
+        timer.resetTo(STAGE_SECONDS);
+    }
+
+    /**
+     * One tick of a timer that shows every second.
+     */
+    @Benchmark
+    public long tick() {
+        clock.advance(1000);
+        return lastTick;
+    }
+
+    /**
+     * A second passing on a timer that isn't ticking, which only wakes at its deadline.
+     */
+    @Benchmark
+    public long tickHidden() {
+        timer.setTicking(false);
+        clock.advance(1000);
+        timer.setTicking(true);
+        return lastTick;
+    }
+
+    /**
+     * Taking a minute off and adding it back, as the minus and plus buttons do.
+     */
+    @Benchmark
+    public long adjust() {
+        clock.advance(1000);
+        timer.subtractMinute();
+        timer.addMinute();
+        return timer.getDeadline();
+    }
+
+    /**
+     * Pausing and resuming, each of which moves the deadline.
+     */
+    @Benchmark
+    public long pauseResume() {
+        clock.advance(1000);
+        timer.setRunning(false);
+        timer.setRunning(true);
+        return timer.getDeadline();
+    }
+
+    @Override
+    public void onTimerRestart() {
+        timer.resetTo(STAGE_SECONDS);
+    }
+
+    @Override
+    public void onTimerFinish() {
+        timer.continueTo(STAGE_SECONDS);
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+        lastTick = millisLeft;
+    }
+
+    @Override
+    public void onTimerAdjusted(long millisLeft) {
+    }
+
+    @Override
+    public void onTimerPauseChanged(boolean running) {
+    }
+}
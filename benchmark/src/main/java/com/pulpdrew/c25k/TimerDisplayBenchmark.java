@@ -0,0 +1,73 @@
+package com.pulpdrew.c25k;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done to show the timer: formatting the time as mm:ss on each tick, and working out
+ * the progress through the stage on each frame, as MainActivity and ProgressRenderer do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimerDisplayBenchmark {
+
+    private static final long DURATION = 5 * 60 * 1000;
+    private static final int PROGRESS_SUBDIVISIONS = 10000;
+    private static final int WIDTH = 1080;
+    private static final long FRAME = 16;
+
+    private final TimeFormatter formatter = new TimeFormatter();
+    private long millisLeft = DURATION;
+    private int lastPixel = -1;
+
+    private long nextMillisLeft() {
+        millisLeft = millisLeft > FRAME ? millisLeft - FRAME : DURATION;
+        return millisLeft;
+    }
+
+    /**
+     * Formatting a tick, which changes the text every time.
+     */
+    @Benchmark
+    public int formatTick() {
+        millisLeft = millisLeft > 1000 ? millisLeft - 1000 : DURATION;
+        formatter.format(millisLeft);
+        return formatter.length();
+    }
+
+    /**
+     * Formatting the time every frame, which only changes the text once a second.
+     */
+    @Benchmark
+    public int formatFrame() {
+        formatter.format(nextMillisLeft());
+        return formatter.length();
+    }
+
+    /**
+     * Working out the progress every frame, and the bar's progress when it moves by a pixel.
+     */
+    @Benchmark
+    public int progressFrame() {
+        double fraction = 1.0 - (double) nextMillisLeft() / DURATION;
+        int pixel = (int) (fraction * WIDTH);
+        if (pixel != lastPixel) {
+            lastPixel = pixel;
+            return (int) (fraction * PROGRESS_SUBDIVISIONS);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Keeps the stage alarm and the cue of a running workout planned for the end of its current
+ * stage. The engine's sink passes its events on here, and the planner sets the one alarm of the
+ * StageScheduler and posts the one cue of the CueScheduler, or cancels them while the timer is
+ * paused or the workout has ended.
+ *
+ * When the stage alarm goes off, onAlarm brings the workout up to date and posts the cue again,
+ * as the cue posted before the device went to sleep would otherwise wait out the sleep.
+ */
+class BoundaryPlanner {
+
+    private final WorkoutEngine engine;
+    private final StageScheduler scheduler;
+    private final CueScheduler cues;
+
+    BoundaryPlanner(WorkoutEngine engine, StageScheduler scheduler, CueScheduler cues) {
+        this.engine = engine;
+        this.scheduler = scheduler;
+        this.cues = cues;
+    }
+
+    /**
+     * Plans the end of a stage that the workout has moved to, giving its cue if it wasn't given
+     * ahead of it.
+     *
+     * @return true if the cue was given late, at the boundary rather than ahead of it.
+     */
+    boolean onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        boolean late = forward && cues.onReached(stage, stageNumber);
+        plan();
+        return late;
+    }
+
+    /**
+     * Plans the end of the current stage again, after the timer has been paused, resumed or
+     * adjusted.
+     */
+    void plan() {
+        planStageEnd();
+        planCue();
+    }
+
+    /**
+     * Brings the workout up to date when the stage alarm wakes the device, and posts the cue
+     * again. The device has to be kept awake until just after the boundary for the cue to run.
+     */
+    void onAlarm() {
+        engine.update();
+        planCue();
+    }
+
+    /**
+     * Gives the cue for the end of the day, if it wasn't given ahead of it.
+     *
+     * @return true if the cue was given late, at the end of the day rather than ahead of it.
+     */
+    boolean onWorkoutFinished() {
+        return cues.onReached(null, engine.getDay().numberOfStages());
+    }
+
+    /**
+     * Cancels the alarm and the cue, once the workout has ended or the service is going away.
+     */
+    void cancel() {
+        scheduler.cancel();
+        cues.cancel();
+    }
+
+    /**
+     * Sets the alarm for the end of the current stage, or cancels it if the timer is paused.
+     */
+    private void planStageEnd() {
+        if (engine.isStarted() && engine.getTimer().isRunning()) {
+            scheduler.plan(engine.getTimer().getDeadline());
+        } else {
+            scheduler.cancel();
+        }
+    }
+
+    /**
+     * Posts the cue for the end of the current stage, or cancels it if the timer is paused.
+     */
+    private void planCue() {
+        if (engine.isStarted() && engine.getTimer().isRunning()) {
+            cues.plan(engine.getDay(), engine.getTimer().getDeadline());
+        } else {
+            cues.cancel();
+        }
+    }
+}
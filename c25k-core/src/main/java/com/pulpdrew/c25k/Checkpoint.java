@@ -0,0 +1,166 @@
+package com.pulpdrew.c25k;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * The state of a running workout at one moment, which is enough for WorkoutEngine.resume to
+ * pick the workout back up in a new process: the day, the stage it was on, and when that stage
+ * ends if it was running, or how much of it was left if it was paused. Times are on the Clock
+ * of the engine, which on a device keeps counting while the app is dead but restarts on reboot.
+ *
+ * A time from before a reboot means nothing after it, so the checkpoint also keeps the
+ * wall-clock time that the device booted at, worked out as the wall-clock time less the time
+ * since boot. Another boot has another boot time, however long the device has been up since.
+ */
+class Checkpoint {
+
+    /*
+     * A checkpoint is stored in 40 bytes: int magic, byte version, byte week, byte day,
+     * byte flags, short stage, short unused, long time, long writtenAt, long bootTime, and a
+     * CRC32 of the rest.
+     */
+    static final int SIZE = 40;
+    private static final int MAGIC = 0x43323553;
+    private static final int VERSION = 2;
+    private static final int CHECKED_SIZE = SIZE - 4;
+    private static final int FLAG_RUNNING = 1;
+
+    /*
+     * How far apart two boot times can be and still be the same boot, in milliseconds. The
+     * wall-clock time is corrected now and then, which moves the boot time worked out from it.
+     * A boot time that moved further, such as by the time being set by hand, is taken as a
+     * reboot, which only costs the workout being resumed.
+     */
+    private static final long BOOT_TIME_TOLERANCE = 10 * 1000;
+
+    private final int week, day, stage;
+    private final boolean running;
+
+    // The end of the stage if running, or the time left in it if paused
+    private final long time;
+    private final long writtenAt;
+    private final long bootTime;
+
+    /**
+     * @param time      the end of the stage if the workout is running, or the time left in it
+     *                  if it is paused.
+     * @param writtenAt the time of the checkpoint on the engine's clock.
+     * @param bootTime  the wall-clock time that the engine's clock started counting from.
+     */
+    Checkpoint(int week, int day, int stage, boolean running, long time, long writtenAt, long bootTime) {
+        this.week = week;
+        this.day = day;
+        this.stage = stage;
+        this.running = running;
+        this.time = time;
+        this.writtenAt = writtenAt;
+        this.bootTime = bootTime;
+    }
+
+    /*
+     * Accessor methods
+     */
+
+    int getWeek() {
+        return week;
+    }
+
+    int getDay() {
+        return day;
+    }
+
+    int getStage() {
+        return stage;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the time on the clock that the stage ends at, if the workout was running.
+     */
+    long getDeadline() {
+        return time;
+    }
+
+    /**
+     * Returns the time that was left in the stage, in milliseconds, if the workout was paused.
+     */
+    long getRemaining() {
+        return time;
+    }
+
+    /**
+     * Returns how far through the day the workout has got to by the given time, in milliseconds,
+     * counting the time since the checkpoint if the workout was running.
+     *
+     * @param index the stage index of the checkpoint's day.
+     */
+    long getElapsedTime(StageIndex index, long now) {
+        return index.getEnd(stage) - (running ? time - now : time);
+    }
+
+    /**
+     * Returns whether the clock has been reset since the checkpoint was taken, such as by the
+     * device restarting, so that its deadline no longer means anything.
+     *
+     * @param now               the time on the engine's clock.
+     * @param currentTimeMillis the wall-clock time.
+     */
+    boolean isStale(long now, long currentTimeMillis) {
+        return now < writtenAt || Math.abs(currentTimeMillis - now - bootTime) > BOOT_TIME_TOLERANCE;
+    }
+
+    /*
+     * Reading and writing
+     */
+
+    void writeTo(ByteBuffer out) {
+        int start = out.position();
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) week);
+        out.put((byte) day);
+        out.put((byte) (running ? FLAG_RUNNING : 0));
+        out.putShort((short) stage);
+        out.putShort((short) 0);
+        out.putLong(time);
+        out.putLong(writtenAt);
+        out.putLong(bootTime);
+        out.putInt(checksum(out.array(), out.arrayOffset() + start));
+    }
+
+    /**
+     * Reads a checkpoint written by writeTo.
+     *
+     * @return the checkpoint, or null if the bytes are not a whole, valid checkpoint.
+     */
+    static Checkpoint readFrom(ByteBuffer in) {
+        if (in.remaining() < SIZE) {
+            return null;
+        }
+        int start = in.position();
+        if (in.getInt(start + CHECKED_SIZE) != checksum(in.array(), in.arrayOffset() + start)
+                || in.getInt() != MAGIC || in.get() != VERSION) {
+            return null;
+        }
+        int week = in.get() & 0xFF;
+        int day = in.get() & 0xFF;
+        boolean running = (in.get() & FLAG_RUNNING) != 0;
+        int stage = in.getShort();
+        in.getShort();
+        long time = in.getLong();
+        long writtenAt = in.getLong();
+        long bootTime = in.getLong();
+        in.getInt();
+        return new Checkpoint(week, day, stage, running, time, writtenAt, bootTime);
+    }
+
+    private static int checksum(byte[] bytes, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, CHECKED_SIZE);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,51 @@
+package com.pulpdrew.c25k;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * A file holding the latest Checkpoint of the running workout, so that the workout can be
+ * resumed if the process is killed. It is a RecordFile, so checkpoints are written in the
+ * background, newest first, and the file always holds either the old checkpoint or the new one.
+ */
+class CheckpointFile {
+
+    private final RecordFile records;
+
+    CheckpointFile(File file) {
+        this.records = new RecordFile(file, Checkpoint.SIZE);
+    }
+
+    /**
+     * Saves the checkpoint in the background, replacing the one in the file.
+     */
+    void save(Checkpoint checkpoint) {
+        ByteBuffer bytes = ByteBuffer.allocate(Checkpoint.SIZE);
+        checkpoint.writeTo(bytes);
+        records.save(bytes.array());
+    }
+
+    /**
+     * Deletes the checkpoint in the background, once the workout is over.
+     */
+    void clear() {
+        records.clear();
+    }
+
+    /**
+     * Reads the checkpoint in the file with a single read.
+     *
+     * @return the checkpoint, or null if there is none or it can't be read.
+     */
+    Checkpoint read() {
+        byte[] bytes = records.read();
+        return bytes != null ? Checkpoint.readFrom(ByteBuffer.wrap(bytes)) : null;
+    }
+
+    /**
+     * Writes any checkpoint still waiting and stops the background thread. See RecordFile.close.
+     */
+    void close() {
+        records.close();
+    }
+}
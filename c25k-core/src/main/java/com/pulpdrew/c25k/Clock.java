@@ -0,0 +1,30 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Source of time and of delayed callbacks for a Timer. On a device this is backed by
+ * SystemClock and a Handler, but any implementation can be used to drive a timer on the JVM.
+ */
+public interface Clock {
+
+    /**
+     * Returns the current time in milliseconds. The time must never go backwards.
+     */
+    long elapsedRealtime();
+
+    /**
+     * Returns the wall-clock time in milliseconds since the epoch. Unlike elapsedRealtime it
+     * jumps when the time is set, and it is only used to tell one boot of the device from
+     * another.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Runs the runnable once the given number of milliseconds have passed.
+     */
+    void postDelayed(Runnable runnable, long delayMillis);
+
+    /**
+     * Removes any pending posts of the runnable.
+     */
+    void removeCallbacks(Runnable runnable);
+}
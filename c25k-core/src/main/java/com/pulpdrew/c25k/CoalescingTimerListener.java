@@ -0,0 +1,103 @@
+package com.pulpdrew.c25k;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes the events of a Timer on to a listener that is slow, or that runs on another thread,
+ * through an Executor. Ticks are coalesced: only the latest is kept, and at most one delivery of
+ * it is waiting in the executor at a time, so a listener that falls behind is sent the newest
+ * time rather than a queue of stale ones. Every other event is sent in order, each in its own
+ * task. A waiting tick delivery always carries the latest time, so that time can reach the
+ * listener just ahead of an event that was sent before it.
+ */
+public class CoalescingTimerListener implements Timer.TimerListener {
+
+    private final Timer.TimerListener listener;
+    private final Executor executor;
+
+    // The latest tick, and whether a task to deliver it is waiting in the executor
+    private final AtomicLong latestTick = new AtomicLong();
+    private final AtomicBoolean tickPending = new AtomicBoolean();
+
+    // The ticks that were replaced by a newer one before they could be delivered
+    private final AtomicInteger coalesced = new AtomicInteger();
+
+    private final Runnable deliverTick = new Runnable() {
+        @Override
+        public void run() {
+            // Clear the flag first, so that a tick set after this read is sure to be delivered again
+            tickPending.set(false);
+            listener.onTimerTick(latestTick.get());
+        }
+    };
+
+    /**
+     * @param listener the listener to pass events to, which is called on the executor.
+     * @param executor the executor to call the listener on. It should run tasks in the order
+     *                 they are given, as a single thread or a Handler does.
+     */
+    public CoalescingTimerListener(Timer.TimerListener listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the number of ticks that were never delivered because a newer tick replaced them.
+     */
+    public int numberOfCoalescedTicks() {
+        return coalesced.get();
+    }
+
+    @Override
+    public void onTimerTick(long millisRemaining) {
+        latestTick.set(millisRemaining);
+        if (tickPending.compareAndSet(false, true)) {
+            executor.execute(deliverTick);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onTimerRestart() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onTimerRestart();
+            }
+        });
+    }
+
+    @Override
+    public void onTimerFinish() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onTimerFinish();
+            }
+        });
+    }
+
+    @Override
+    public void onTimerAdjusted(final long millisRemaining) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onTimerAdjusted(millisRemaining);
+            }
+        });
+    }
+
+    @Override
+    public void onTimerPauseChanged(final boolean running) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onTimerPauseChanged(running);
+            }
+        });
+    }
+}
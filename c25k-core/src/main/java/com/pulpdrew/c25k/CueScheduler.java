@@ -0,0 +1,119 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Gives the cue for each stage boundary of a running day a little before the boundary itself,
+ * so that the sound and vibration that announce a stage have already started by the time it
+ * does. Only the next boundary is ever planned, and it is planned again whenever the stage
+ * changes or the timer is paused, resumed or adjusted, in the same places as the StageScheduler.
+ *
+ * The cue is posted on the clock, which doesn't run its posts while the device sleeps. With the
+ * screen off, the stage alarm goes off LEAD_MILLIS ahead of the boundary to wake the device, and
+ * the cue is planned again then, so that it is still given ahead.
+ *
+ * A cue can't always be given ahead, such as when the workout is moved straight onto a new
+ * stage or the alarm came late. onReached catches those, so that every stage still gets
+ * exactly one cue.
+ */
+class CueScheduler {
+
+    /**
+     * How long before a boundary its cue is given, in milliseconds. This covers the time the
+     * platform takes to start playing a sound.
+     */
+    static final long LEAD_MILLIS = 200;
+
+    /**
+     * Gives the cues, on the thread of the clock.
+     */
+    interface CueListener {
+
+        /**
+         * Called when a stage is about to start, or when the day is about to finish.
+         *
+         * @param next     the stage that is about to start, or null if the day is finishing.
+         * @param boundary the time that the stage starts at, on the clock of the scheduler.
+         *                 It is never before the time of the call.
+         */
+        void onCue(Stage next, long boundary);
+    }
+
+    private final Clock clock;
+    private final CueListener listener;
+
+    // The cue that is posted, if pendingNumber isn't -1. Finishing the day is numbered as the stage after the last.
+    private int pendingNumber = -1;
+    private Stage pendingStage;
+    private long pendingBoundary;
+
+    // The stage whose cue has been given ahead of its boundary, or -1 if it hasn't been given
+    private int cuedNumber = -1;
+
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            cuedNumber = pendingNumber;
+            pendingNumber = -1;
+            listener.onCue(pendingStage, pendingBoundary);
+        }
+    };
+
+    CueScheduler(Clock clock, CueListener listener) {
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    /**
+     * Posts the cue for the end of the day's current stage, replacing any cue posted by an
+     * earlier plan.
+     *
+     * @param day      the running day, on its current stage.
+     * @param stageEnd the time that the current stage will end at.
+     */
+    void plan(Day day, long stageEnd) {
+
+        cancel();
+
+        // Pausing and playing just before a boundary would otherwise give its cue twice
+        int next = day.getStageNumber() + 1;
+        long now = clock.elapsedRealtime();
+        if (next == cuedNumber && stageEnd - now <= LEAD_MILLIS) {
+            return;
+        }
+
+        cuedNumber = -1;
+        pendingNumber = next;
+        pendingStage = next < day.numberOfStages() ? day.getStage(next) : null;
+        pendingBoundary = stageEnd;
+        clock.postDelayed(dispatch, Math.max(0, stageEnd - LEAD_MILLIS - now));
+    }
+
+    /**
+     * Tells the scheduler that the workout has reached a stage, or finished, and gives its cue
+     * straight away if it wasn't given ahead of time.
+     *
+     * @param stage       the stage that started, or null if the day finished.
+     * @param stageNumber the index of the stage, or the number of stages if the day finished.
+     * @return true if the cue was given late, at the boundary rather than ahead of it.
+     */
+    boolean onReached(Stage stage, int stageNumber) {
+        boolean late = stageNumber != cuedNumber;
+        if (late) {
+            cancel();
+            listener.onCue(stage, clock.elapsedRealtime());
+        }
+        cuedNumber = -1;
+        return late;
+    }
+
+    /**
+     * Cancels the posted cue, if there is one. Which cue was last given is kept, so that it is
+     * not given again if the same boundary is planned straight afterwards.
+     */
+    void cancel() {
+        if (pendingNumber != -1) {
+            clock.removeCallbacks(dispatch);
+            pendingNumber = -1;
+            pendingStage = null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.pulpdrew.c25k;
+
+import java.io.IOException;
+
+/**
+ * Class representing a single day in teh C25K program, which includes stages for
+ * each stage of the day. A day is a cursor over the day's packed stages in the shared Plan,
+ * so creating one does not read anything from the assets. The stages it returns are the
+ * plan's shared flyweights.
+ */
+class Day {
+
+    /*
+     * Member variables
+     */
+    private Plan plan;
+    private short[] stages;
+    private StageIndex stageIndex;
+    private int runSeconds, walkSeconds;
+    private int numStages;
+    private int currentStage;
+
+    private int week, day;
+    private String description;
+
+    private HistoryLog history;
+
+    /**
+     * Constructor to create a new Day object.
+     *
+     * @param week the week to which the day belongs.
+     * @param day the day of the given week.
+     * @param plan the plan to look the day up in.
+     * @param history the log that the day's completeness and events are kept in.
+     */
+    Day(int week, int day, Plan plan, HistoryLog history) {
+
+        this.history = history;
+        this.week = week;
+        this.day = day;
+
+        readInDay(plan, week, day);
+        numStages = stages.length;
+        currentStage = -1;
+
+    }
+
+    /**
+     * Makes the given day of a program, reading its stages in if the program doesn't keep them
+     * in memory. A day that can't be read, like a day the program doesn't have, has no stages,
+     * so starting it finishes it straight away.
+     */
+    static Day read(Program program, int week, int day, HistoryLog history) {
+        Plan plan;
+        try {
+            plan = program.getPlanOf(program.indexOf(week, day));
+        } catch (IOException e) {
+            e.printStackTrace();
+            plan = Plan.NO_DAYS;
+        }
+        return new Day(week, day, plan, history);
+    }
+
+    /**
+     * Look up the day in the plan and update the instance variables to
+     * match the day.
+     */
+    private void readInDay(Plan plan, int week, int day) {
+
+        // Get the stages and description of the day from the plan
+        this.plan = plan;
+        int index = plan.indexOf(week, day);
+        stages = plan.getStages(index);
+        stageIndex = plan.getStageIndex(index);
+        runSeconds = plan.getRunSeconds(index);
+        walkSeconds = plan.getWalkSeconds(index);
+        description = plan.getDescription(index);
+
+    }
+
+    /**
+     * Return the next stage of the day, or the last stage if the day is
+     * already on the last stage.
+     */
+    Stage getNext() {
+        currentStage = Math.min(numStages - 1, currentStage + 1);
+        return plan.getStage(stages[currentStage]);
+    }
+
+    /**
+     * Returns the previous stage of the day, or the first stage if the
+     * day is already at the beginning.
+     */
+    Stage getPrevious() {
+        currentStage = Math.max(0, currentStage - 1);
+        return plan.getStage(stages[currentStage]);
+    }
+
+    /**
+     * Returns the stage at the given index, without moving the day to it.
+     */
+    Stage getStage(int index) {
+        return plan.getStage(stages[index]);
+    }
+
+    /**
+     * Moves the day straight to the stage at the given index.
+     */
+    Stage moveTo(int stage) {
+        currentStage = stage;
+        return plan.getStage(stages[currentStage]);
+    }
+
+    /**
+     * Returns the start and end times of the day's stages.
+     */
+    StageIndex getStageIndex() {
+        return stageIndex;
+    }
+
+    int numberOfStages() {
+        return numStages;
+    }
+
+    /**
+     * Returns the total length of the day's running stages, in seconds.
+     */
+    int getRunSeconds() {
+        return runSeconds;
+    }
+
+    /**
+     * Returns the total length of the day's walking stages, in seconds.
+     */
+    int getWalkSeconds() {
+        return walkSeconds;
+    }
+
+    /**
+     * Returns the index of the stage that is currently represented by the day instance.
+     */
+    int getStageNumber() {
+        return currentStage;
+    }
+
+    int getWeekNumber() {
+        return week;
+    }
+
+    int getDayNumber() {
+        return day;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    boolean isComplete() {
+        return history.isComplete(week, day);
+    }
+
+    /**
+     * Sets the day's completedness to the value of complete.
+     */
+    void setComplete(boolean complete) {
+
+        // Record the change in the history log, so that the data is saved.
+        history.append(complete ? HistoryLog.EVENT_MARK_COMPLETE : HistoryLog.EVENT_MARK_INCOMPLETE, week, day, 0);
+    }
+
+    /**
+     * Records a session event for this day in the history log.
+     *
+     * @param type     one of the HistoryLog.EVENT constants.
+     * @param argument extra data for the event.
+     */
+    void record(int type, int argument) {
+        history.append(type, week, day, argument);
+    }
+
+    void reset() {
+        this.currentStage = -1;
+    }
+}
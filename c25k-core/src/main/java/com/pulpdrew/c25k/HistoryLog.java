@@ -0,0 +1,393 @@
+package com.pulpdrew.c25k;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of workout session events, stored in a binary file (see AppData for the
+ * app's log). Whether a day is complete is derived from the log and kept in an in-memory
+ * index, so recording an event or checking a day is O(1) however long the history grows.
+ *
+ * Events are buffered in memory and written, then synced to disk, in batches on a background
+ * thread. A batch is written when it fills up, when an event that changes completion is
+ * appended, or when flush is called. If the process dies part way through writing, the torn
+ * records at the end of the file are dropped the next time the log is opened. A damaged record
+ * anywhere else is skipped, so that it doesn't take the history after it with it.
+ *
+ * The log is compacted when it is opened if it has grown well past what compacting it would
+ * leave, so a long history of finished sessions, which compacting can't shrink, doesn't have it
+ * compacted again every time.
+ */
+class HistoryLog {
+
+    /*
+     * Event types. These are stored in the log, so they must never be changed.
+     */
+    static final int EVENT_START = 1;
+    static final int EVENT_STAGE = 2;
+    static final int EVENT_PAUSE = 3;
+    static final int EVENT_RESUME = 4;
+    static final int EVENT_ADD_MINUTE = 5;
+    static final int EVENT_SUBTRACT_MINUTE = 6;
+    static final int EVENT_FINISH = 7;
+    static final int EVENT_STOP = 8;
+    static final int EVENT_MARK_COMPLETE = 9;
+    static final int EVENT_MARK_INCOMPLETE = 10;
+    static final int EVENT_SEEK = 11;
+    static final int EVENT_RESTORE = 12;
+
+    /*
+     * Each record is 16 bytes: long time, byte type, byte week, byte day, byte unused,
+     * short argument, and a short checksum of the first 14 bytes.
+     *
+     * The checksum is the low 16 bits of a CRC32, which is all that fits in the record. That
+     * still catches every error of up to 16 bits in a row, and lets through one in 65536 records
+     * of garbage, such as a record that was only partly written when the process died. It is
+     * there to find torn writes rather than to stand in for the file system's own checks.
+     */
+    static final int RECORD_SIZE = 16;
+    private static final int CHECKED_SIZE = 14;
+
+    // The number of records to buffer before writing them
+    private static final int BATCH_SIZE = 32;
+
+    /*
+     * When the log is opened, it is compacted if it is bigger than COMPACT_THRESHOLD and more
+     * than COMPACT_RATIO times the size that compacting it would leave.
+     */
+    private static final long COMPACT_THRESHOLD = 64 * 1024;
+    private static final int COMPACT_RATIO = 2;
+
+    // How long close waits for the last writes
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final File file;
+    private final ExecutorService writer;
+
+    // Records that have been appended but not yet handed to the writer
+    private final ByteBuffer pending;
+
+    // Days that are complete, indexed by (week << 8 | day)
+    private final BitSet completed;
+
+    /**
+     * Creates a log backed by the given file. The log must be opened before it is used.
+     */
+    HistoryLog(File file) {
+        this.file = file;
+        this.writer = Executors.newSingleThreadExecutor();
+        this.pending = ByteBuffer.allocate(BATCH_SIZE * RECORD_SIZE);
+        this.completed = new BitSet();
+    }
+
+    /**
+     * Appends an event to the log.
+     *
+     * @param type     one of the EVENT constants.
+     * @param week     the week of the day that the event happened on.
+     * @param day      the day of the given week.
+     * @param argument extra data for the event, such as the stage number of EVENT_STAGE.
+     */
+    synchronized void append(int type, int week, int day, int argument) {
+        append(System.currentTimeMillis(), type, week, day, argument);
+    }
+
+    /**
+     * Appends an event to the log with the given timestamp.
+     */
+    synchronized void append(long time, int type, int week, int day, int argument) {
+
+        apply(type, week, day);
+
+        writeRecord(pending, time, type, week, day, argument);
+
+        // Completion is what matters most, so don't leave it sitting in memory
+        if (!pending.hasRemaining() || changesCompletion(type)) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes and syncs every appended event in the background.
+     */
+    synchronized void flush() {
+        if (pending.position() == 0) {
+            return;
+        }
+
+        final byte[] batch = new byte[pending.position()];
+        pending.flip();
+        pending.get(batch);
+        pending.clear();
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (FileOutputStream out = new FileOutputStream(file, true)) {
+                    out.write(batch);
+                    out.getFD().sync();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes every appended event, waits for the writes to finish and stops the background
+     * thread. Nothing can be appended to the log once it is closed.
+     */
+    void close() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns whether the given day has been completed.
+     */
+    synchronized boolean isComplete(int week, int day) {
+        return completed.get(key(week, day));
+    }
+
+    /**
+     * Returns the days of the plan that have been completed, as the set of their indexes in the
+     * plan, so that the completion of the whole plan can be read at once.
+     */
+    synchronized BitSet getCompleted(Plan plan) {
+        BitSet days = new BitSet(plan.numberOfDays());
+        for (int key = completed.nextSetBit(0); key >= 0; key = completed.nextSetBit(key + 1)) {
+            int index = plan.indexOf(key >> 8, key & 0xFF);
+            if (index >= 0) {
+                days.set(index);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Reads the log into the index, skipping any damaged record and dropping the torn ones at
+     * the end of the file, and compacts the log if it has grown well past its compacted size.
+     */
+    synchronized void open() {
+
+        if (!file.exists()) {
+            return;
+        }
+
+        // If the file can't be read, keep all of it
+        long valid = file.length();
+
+        // The number of records that compacting the log would keep, and the days that were finished
+        long keptRecords = 0;
+        BitSet finished = new BitSet();
+        try (FileInputStream in = new FileInputStream(file)) {
+
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int count = in.read(bytes, read, bytes.length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+
+            // Skip each damaged record, and keep the file up to the end of the last good one
+            ByteBuffer records = ByteBuffer.wrap(bytes, 0, read);
+            valid = 0;
+            while (records.remaining() >= RECORD_SIZE) {
+                int start = records.position();
+                if (!isValidRecord(records)) {
+                    records.position(start + RECORD_SIZE);
+                    continue;
+                }
+                records.getLong();
+                int type = records.get();
+                int week = records.get() & 0xFF;
+                int day = records.get() & 0xFF;
+                records.position(start + RECORD_SIZE);
+                apply(type, week, day);
+
+                if (isKeptByCompaction(type)) {
+                    keptRecords++;
+                }
+                if (type == EVENT_FINISH) {
+                    finished.set(key(week, day));
+                }
+                valid = records.position();
+            }
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Drop anything after the last good record
+        if (valid < file.length()) {
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                out.setLength(valid);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Compacting keeps a mark for each complete day, and for each finished day that no longer is
+        finished.andNot(completed);
+        keptRecords += completed.cardinality() + finished.cardinality();
+        if (valid > COMPACT_THRESHOLD && valid > COMPACT_RATIO * keptRecords * RECORD_SIZE) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the log without the events in the middle of sessions or any damaged record. Each
+     * session keeps its start and its finish or stop, and the manual marks are replaced by one
+     * record for each day whose completion they decide. The new log replaces the old one with an
+     * atomic rename.
+     */
+    synchronized void compact() {
+
+        flush();
+        final BitSet complete = (BitSet) completed.clone();
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+
+                ByteArrayOutputStream kept = new ByteArrayOutputStream();
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+                BitSet finished = new BitSet();
+
+                try (FileInputStream in = new FileInputStream(file)) {
+                    byte[] bytes = new byte[RECORD_SIZE];
+                    ByteBuffer read = ByteBuffer.wrap(bytes);
+                    while (readRecord(in, bytes)) {
+                        if (!isValidRecord(read)) {
+                            continue;
+                        }
+                        int type = bytes[8];
+                        if (isKeptByCompaction(type)) {
+                            kept.write(bytes, 0, RECORD_SIZE);
+                        }
+                        if (type == EVENT_FINISH) {
+                            finished.set(key(bytes[9] & 0xFF, bytes[10] & 0xFF));
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+
+                /*
+                 * Manual marks only matter for their end result, so replace them with one per day:
+                 * complete for each complete day, and incomplete for each finished day that has
+                 * since been marked incomplete.
+                 */
+                long now = System.currentTimeMillis();
+                finished.andNot(complete);
+                for (int key = complete.nextSetBit(0); key >= 0; key = complete.nextSetBit(key + 1)) {
+                    record.clear();
+                    writeRecord(record, now, EVENT_MARK_COMPLETE, key >> 8, key & 0xFF, 0);
+                    kept.write(record.array(), 0, RECORD_SIZE);
+                }
+                for (int key = finished.nextSetBit(0); key >= 0; key = finished.nextSetBit(key + 1)) {
+                    record.clear();
+                    writeRecord(record, now, EVENT_MARK_INCOMPLETE, key >> 8, key & 0xFF, 0);
+                    kept.write(record.array(), 0, RECORD_SIZE);
+                }
+
+                File compacted = new File(file.getPath() + ".tmp");
+                try (FileOutputStream out = new FileOutputStream(compacted)) {
+                    kept.writeTo(out);
+                    out.getFD().sync();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                if (!compacted.renameTo(file)) {
+                    compacted.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the index with an event.
+     */
+    private void apply(int type, int week, int day) {
+        if (type == EVENT_FINISH || type == EVENT_MARK_COMPLETE) {
+            completed.set(key(week, day));
+        } else if (type == EVENT_MARK_INCOMPLETE) {
+            completed.clear(key(week, day));
+        }
+    }
+
+    /**
+     * Returns whether compacting the log keeps events of the given type as they are.
+     */
+    private static boolean isKeptByCompaction(int type) {
+        return type == EVENT_START || type == EVENT_FINISH || type == EVENT_STOP;
+    }
+
+    private static boolean changesCompletion(int type) {
+        return type == EVENT_FINISH || type == EVENT_MARK_COMPLETE || type == EVENT_MARK_INCOMPLETE;
+    }
+
+    private static int key(int week, int day) {
+        return week << 8 | day;
+    }
+
+    private static void writeRecord(ByteBuffer out, long time, int type, int week, int day, int argument) {
+        int start = out.position();
+        out.putLong(time);
+        out.put((byte) type);
+        out.put((byte) week);
+        out.put((byte) day);
+        out.put((byte) 0);
+        out.putShort((short) argument);
+        out.putShort(checksum(out.array(), out.arrayOffset() + start));
+    }
+
+    /**
+     * Returns whether the record at the buffer's position has a matching checksum.
+     */
+    private static boolean isValidRecord(ByteBuffer records) {
+        int start = records.position();
+        return records.getShort(start + CHECKED_SIZE) == checksum(records.array(), records.arrayOffset() + start);
+    }
+
+    private static short checksum(byte[] bytes, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, CHECKED_SIZE);
+        return (short) crc.getValue();
+    }
+
+    /**
+     * Reads the next whole record into bytes, returning false at the end of the file.
+     */
+    private static boolean readRecord(FileInputStream in, byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < RECORD_SIZE) {
+            int count = in.read(bytes, read, RECORD_SIZE - read);
+            if (count < 0) {
+                return false;
+            }
+            read += count;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+package com.pulpdrew.c25k;
+
+import java.util.Arrays;
+
+/**
+ * The whole C25K program, read in once per process (see AppData) and shared by every Day.
+ * A plan is immutable, so its stage arrays are handed out without being copied.
+ *
+ * Each day's stages are kept packed in a short[] (see Stage.pack), rather than as an object
+ * for every stage. The plan makes one Stage for each distinct packed stage, and every day
+ * shares those flyweights, so the whole program needs only a handful of Stage objects.
+ */
+class Plan implements Program {
+
+    static final short[] NO_STAGES = new short[0];
+    private static final StageIndex NO_INDEX = new StageIndex(NO_STAGES);
+    static final Plan NO_DAYS = new Plan(new int[0], new int[0], new String[0], new short[0][]);
+
+    /*
+     * Days are sorted by week, then by day. Each day is stored as a key of (week << 8 | day)
+     * so that a day can be found with a binary search.
+     */
+    private final int[] keys;
+    private final String[] descriptions;
+    private final short[][] stages;
+    private final StageIndex[] stageIndexes;
+
+    // The seconds of running and of walking in each day
+    private final int[] runSeconds;
+    private final int[] walkSeconds;
+
+    // The flyweight for each distinct packed stage, sorted by the unsigned packed value
+    private final int[] flyweightKeys;
+    private final Stage[] flyweights;
+
+    /**
+     * Creates a plan from the days in it, which must be sorted by week and then by day.
+     */
+    Plan(int[] weeks, int[] days, String[] descriptions, short[][] stages) {
+        this.keys = new int[weeks.length];
+        for (int i = 0; i < weeks.length; i++) {
+            keys[i] = key(weeks[i], days[i]);
+        }
+        this.descriptions = descriptions;
+        this.stages = stages;
+
+        // The plan is read once per process, so index every day up front
+        this.stageIndexes = new StageIndex[stages.length];
+        this.runSeconds = new int[stages.length];
+        this.walkSeconds = new int[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            stageIndexes[i] = new StageIndex(stages[i]);
+            for (short stage : stages[i]) {
+                if (Stage.typeOf(stage) == Stage.StageType.RUN) {
+                    runSeconds[i] += Stage.lengthOf(stage);
+                } else if (Stage.typeOf(stage) == Stage.StageType.WALK) {
+                    walkSeconds[i] += Stage.lengthOf(stage);
+                }
+            }
+        }
+
+        // Find every distinct stage in the plan, and make a single Stage for each
+        int count = 0;
+        for (short[] day : stages) {
+            count += day.length;
+        }
+        int[] all = new int[count];
+        count = 0;
+        for (short[] day : stages) {
+            for (short stage : day) {
+                all[count++] = stage & 0xFFFF;
+            }
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        this.flyweightKeys = Arrays.copyOf(all, distinct);
+        this.flyweights = new Stage[distinct];
+        for (int i = 0; i < distinct; i++) {
+            short packed = (short) flyweightKeys[i];
+            flyweights[i] = new Stage(Stage.typeOf(packed), Stage.lengthOf(packed));
+        }
+    }
+
+    /**
+     * Returns the index of the given day in the plan, or -1 if the plan does not have the day.
+     */
+    @Override
+    public int indexOf(int week, int day) {
+        int index = Arrays.binarySearch(keys, key(week, day));
+        return index >= 0 ? index : -1;
+    }
+
+    @Override
+    public int numberOfDays() {
+        return keys.length;
+    }
+
+    /*
+     * The week and day of the day at each index, for going through every day in the plan
+     */
+
+    @Override
+    public int getWeek(int index) {
+        return keys[index] >> 8;
+    }
+
+    @Override
+    public int getDay(int index) {
+        return keys[index] & 0xFF;
+    }
+
+    /**
+     * Returns the plan itself, which holds every day of the program.
+     */
+    @Override
+    public Plan getPlanOf(int index) {
+        return this;
+    }
+
+    /**
+     * Returns the description of the day at the given index, or null if there is no such day.
+     */
+    String getDescription(int index) {
+        return index >= 0 ? descriptions[index] : null;
+    }
+
+    /**
+     * Returns the packed stages of the day at the given index. The array is shared, so it must
+     * not be modified.
+     */
+    short[] getStages(int index) {
+        return index >= 0 ? stages[index] : NO_STAGES;
+    }
+
+    /**
+     * Returns the shared Stage for a packed stage of one of the plan's days.
+     */
+    Stage getStage(short packed) {
+        return flyweights[Arrays.binarySearch(flyweightKeys, packed & 0xFFFF)];
+    }
+
+    /**
+     * Returns the start and end times of the stages of the day at the given index.
+     */
+    StageIndex getStageIndex(int index) {
+        return index >= 0 ? stageIndexes[index] : NO_INDEX;
+    }
+
+    /*
+     * The time spent running and walking in the day at each index, in seconds, not counting the
+     * warm-up and cooldown, or 0 if there is no such day
+     */
+
+    int getRunSeconds(int index) {
+        return index >= 0 ? runSeconds[index] : 0;
+    }
+
+    int getWalkSeconds(int index) {
+        return index >= 0 ? walkSeconds[index] : 0;
+    }
+
+    private static int key(int week, int day) {
+        return week << 8 | day;
+    }
+}
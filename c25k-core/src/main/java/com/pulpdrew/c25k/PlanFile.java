@@ -0,0 +1,95 @@
+package com.pulpdrew.c25k;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader for the binary plan file produced by the compilePlans Gradle task, which packs
+ * every day of the program into a single asset. Stages are stored packed the same way that
+ * Plan keeps them, so no lines are split and no integers are parsed.
+ */
+class PlanFile {
+
+    /*
+     * Format constants, these must match the compilePlans task in app/build.gradle
+     */
+    static final String FILENAME = "plan.c25kb";
+    static final int MAGIC = 0x43323542;
+    static final int VERSION = 1;
+
+    private static final int STRING_OFFSET_SIZE = 4;
+
+    private PlanFile() {
+    }
+
+    /**
+     * Reads a whole plan file, with the packed stages of each day in an array.
+     *
+     * @param in a stream positioned at the start of the plan file.
+     * @return the plan contained in the file.
+     * @throws IOException if the stream cannot be read or is not a plan file.
+     */
+    static Plan read(InputStream in) throws IOException {
+
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+        // Check the header
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " plan file");
+        }
+        int dayCount = data.readUnsignedShort();
+        int stageCount = data.readUnsignedShort();
+        int stringCount = data.readUnsignedShort();
+
+        // Read the day index
+        int[] weeks = new int[dayCount];
+        int[] days = new int[dayCount];
+        int[] descriptionIndices = new int[dayCount];
+        int[] stageCounts = new int[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            weeks[i] = data.readUnsignedByte();
+            days[i] = data.readUnsignedByte();
+            descriptionIndices[i] = data.readUnsignedShort();
+
+            // The stages of the days are stored in order, so the first stage can be skipped
+            data.readUnsignedShort();
+            stageCounts[i] = data.readUnsignedShort();
+        }
+
+        // The stage records are already packed the way the plan keeps them
+        short[][] stages = new short[dayCount][];
+        int read = 0;
+        for (int i = 0; i < dayCount; i++) {
+            stages[i] = new short[stageCounts[i]];
+            for (int j = 0; j < stageCounts[i]; j++) {
+                stages[i][j] = data.readShort();
+            }
+            read += stageCounts[i];
+        }
+        if (read != stageCount) {
+            throw new IOException("Plan file stage count does not match its days");
+        }
+
+        // The strings are stored in order, so the offsets are not needed when reading all of them
+        skipFully(data, stringCount * STRING_OFFSET_SIZE);
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = data.readUTF();
+        }
+
+        String[] descriptions = new String[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            descriptions[i] = strings[descriptionIndices[i]];
+        }
+
+        return new Plan(weeks, days, descriptions, stages);
+    }
+
+    private static void skipFully(DataInputStream data, int bytes) throws IOException {
+        if (data.skipBytes(bytes) != bytes) {
+            throw new IOException("Unexpected end of plan file");
+        }
+    }
+}
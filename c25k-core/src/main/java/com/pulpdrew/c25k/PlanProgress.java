@@ -0,0 +1,60 @@
+package com.pulpdrew.c25k;
+
+import java.util.BitSet;
+
+/**
+ * Which days of a Plan have been completed, held as a single word with a bit for each day in
+ * the order of the plan. Questions about the whole program, such as how much of it is done or
+ * which day comes next, are a bit count or a scan for a zero bit rather than a lookup per day.
+ */
+class PlanProgress {
+
+    private final int numberOfDays;
+
+    // Bit i is set if the day at index i of the plan is complete
+    private final long completed;
+
+    /**
+     * @param plan      the plan, which must have no more than 64 days.
+     * @param completed the indexes in the plan of the completed days, as from HistoryLog.getCompleted.
+     */
+    PlanProgress(Plan plan, BitSet completed) {
+        if (plan.numberOfDays() > Long.SIZE) {
+            throw new IllegalArgumentException("Too many days to track: " + plan.numberOfDays());
+        }
+        long[] words = completed.toLongArray();
+        this.numberOfDays = plan.numberOfDays();
+        this.completed = words.length > 0 ? words[0] & allDays() : 0;
+    }
+
+    boolean isComplete(int index) {
+        return (completed & 1L << index) != 0;
+    }
+
+    int numberOfComplete() {
+        return Long.bitCount(completed);
+    }
+
+    int numberOfDays() {
+        return numberOfDays;
+    }
+
+    /**
+     * Returns how much of the program is done, as a whole percentage rounded down.
+     */
+    int getPercentComplete() {
+        return numberOfDays == 0 ? 100 : numberOfComplete() * 100 / numberOfDays;
+    }
+
+    /**
+     * Returns the index in the plan of the first day that isn't complete, or -1 if every day is.
+     */
+    int nextIncomplete() {
+        long incomplete = ~completed & allDays();
+        return incomplete == 0 ? -1 : Long.numberOfTrailingZeros(incomplete);
+    }
+
+    private long allDays() {
+        return numberOfDays == Long.SIZE ? -1L : (1L << numberOfDays) - 1;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pulpdrew.c25k;
+
+import java.io.IOException;
+
+/**
+ * A program of days, indexed by week and day. The built-in program is a Plan held wholly in
+ * memory, while a ProgramFile only keeps an index of its days and reads a day's stages in when
+ * the day is opened.
+ */
+interface Program {
+
+    /**
+     * Returns the index of the given day in the program, or -1 if the program does not have it.
+     */
+    int indexOf(int week, int day);
+
+    int numberOfDays();
+
+    /*
+     * The week and day of the day at each index, in order of week and then day
+     */
+
+    int getWeek(int index);
+
+    int getDay(int index);
+
+    /**
+     * Returns a plan that holds the day at the given index, reading the day in if it is not
+     * already in memory, or a plan with no days for an index of -1.
+     *
+     * @throws IOException if the day can't be read.
+     */
+    Plan getPlanOf(int index) throws IOException;
+}
@@ -0,0 +1,290 @@
+package com.pulpdrew.c25k;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A program kept in a single text file, which may have any number of days. The first line of
+ * the file is the name of the program, and each day starts with a line "DAY [week] [day]
+ * [description]" followed by its stages in the same format as a day file (see TextPlanReader):
+ *
+ * <pre>
+ * 10K Follow-Up
+ * DAY 1 1 Run 30 minutes.
+ * WARMUP 300
+ * RUN 1800
+ * COOLDOWN 300
+ * </pre>
+ *
+ * Opening a program file streams through it once, byte by byte, and keeps only where each day
+ * starts, so that a program of thousands of days costs two ints a day and no stages. A day's
+ * stages are read in from its place in the file when the day is opened.
+ */
+class ProgramFile implements Program {
+
+    static final String EXTENSION = ".c25kp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] DAY_PREFIX = {'D', 'A', 'Y', ' '};
+
+    // Weeks and days are stored in a byte in the plan file and the history log
+    private static final int MAX_NUMBER = 0xFF;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+    private final String name;
+
+    // Each day's key (week << 8 | day), in order, and the offset in the file of its DAY line
+    private final int[] keys;
+    private final int[] offsets;
+    private final long length;
+
+    private ProgramFile(File file, String name, int[] keys, int[] offsets, long length) {
+        this.file = file;
+        this.name = name;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.length = length;
+    }
+
+    /**
+     * Reads the index of the days in a program file, without reading any of their stages.
+     *
+     * @throws IOException if the file can't be read, or its days are out of order.
+     */
+    static ProgramFile open(File file) throws IOException {
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            Indexer indexer = new Indexer(in);
+
+            String name = indexer.readName();
+            int count = 0;
+            int[] keys = new int[64];
+            int[] offsets = new int[64];
+            int key;
+            while ((key = indexer.nextDay()) >= 0) {
+                if (count > 0 && key <= keys[count - 1]) {
+                    throw new IOException(file.getName() + ": day " + (key >> 8) + "/" + (key & 0xFF) + " is out of order");
+                }
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                keys[count] = key;
+                offsets[count] = indexer.lineStart;
+                count++;
+            }
+
+            return new ProgramFile(file, name, Arrays.copyOf(keys, count), Arrays.copyOf(offsets, count), indexer.position);
+        }
+    }
+
+    /**
+     * Returns the name of the program, from the first line of its file.
+     */
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public int indexOf(int week, int day) {
+        int index = Arrays.binarySearch(keys, week << 8 | day);
+        return index >= 0 ? index : -1;
+    }
+
+    @Override
+    public int numberOfDays() {
+        return keys.length;
+    }
+
+    @Override
+    public int getWeek(int index) {
+        return keys[index] >> 8;
+    }
+
+    @Override
+    public int getDay(int index) {
+        return keys[index] & 0xFF;
+    }
+
+    /**
+     * Reads the day at the given index out of the file, into a plan of just that day.
+     */
+    @Override
+    public Plan getPlanOf(int index) throws IOException {
+        if (index < 0) {
+            return Plan.NO_DAYS;
+        }
+
+        long end = index + 1 < offsets.length ? offsets[index + 1] : length;
+        byte[] bytes = new byte[(int) (end - offsets[index])];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(offsets[index]);
+            in.readFully(bytes);
+        }
+
+        // Skip "DAY [week] [day] " to the description, then read a stage from each line after it
+        int position = skipField(bytes, skipField(bytes, skipField(bytes, 0)));
+        int lineEnd = lineEnd(bytes, position);
+        String description = new String(bytes, position, lineEnd - position, UTF_8).trim();
+
+        short[] stages = new short[16];
+        int count = 0;
+        for (position = lineEnd + 1; position < bytes.length; position = lineEnd + 1) {
+            lineEnd = lineEnd(bytes, position);
+            int typeEnd = fieldEnd(bytes, position, lineEnd);
+            if (typeEnd == position) {
+                continue;
+            }
+            Stage.StageType type = TextPlanReader.typeOf(new String(bytes, position, typeEnd - position, UTF_8));
+            int seconds = parseNumber(bytes, typeEnd + 1, lineEnd);
+            if (seconds < 0 || seconds > Stage.LENGTH_MASK) {
+                throw new IOException(file.getName() + ": bad stage in day " + getWeek(index) + "/" + getDay(index));
+            }
+            if (count == stages.length) {
+                stages = Arrays.copyOf(stages, count * 2);
+            }
+            stages[count++] = Stage.pack(type, seconds);
+        }
+
+        return new Plan(new int[]{getWeek(index)}, new int[]{getDay(index)}, new String[]{description},
+                new short[][]{Arrays.copyOf(stages, count)});
+    }
+
+    /**
+     * Returns the index just past the end of the field that starts at the given index, and any
+     * spaces after it.
+     */
+    private static int skipField(byte[] bytes, int position) {
+        int end = fieldEnd(bytes, position, lineEnd(bytes, position));
+        while (end < bytes.length && bytes[end] == ' ') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int fieldEnd(byte[] bytes, int position, int lineEnd) {
+        while (position < lineEnd && bytes[position] != ' ') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int lineEnd(byte[] bytes, int position) {
+        while (position < bytes.length && bytes[position] != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Parses the unsigned number at the start of the given range, or returns -1 if there isn't one.
+     */
+    private static int parseNumber(byte[] bytes, int position, int end) {
+        int value = -1;
+        for (; position < end && bytes[position] >= '0' && bytes[position] <= '9'; position++) {
+            value = Math.max(value, 0) * 10 + bytes[position] - '0';
+            if (value > Stage.LENGTH_MASK) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Streams through a program file a line at a time, only looking at the start of each line.
+     */
+    private static class Indexer {
+
+        private final InputStream in;
+
+        // The offset in the file of the next byte, and of the line that is being read
+        int position;
+        int lineStart;
+
+        // The last byte read, or -1 at the end of the file
+        private int last;
+
+        Indexer(InputStream in) {
+            this.in = in;
+        }
+
+        String readName() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (read() >= 0 && last != '\n') {
+                line.write(last);
+            }
+            return new String(line.toByteArray(), UTF_8).trim();
+        }
+
+        /**
+         * Skips to the next DAY line and reads its week and day.
+         *
+         * @return the key of the day, or -1 at the end of the file.
+         * @throws IOException if the DAY line is malformed.
+         */
+        int nextDay() throws IOException {
+            while (true) {
+                lineStart = position;
+
+                // Stage lines are skipped without being looked at past their first byte
+                int matched = 0;
+                while (matched < DAY_PREFIX.length && read() == DAY_PREFIX[matched]) {
+                    matched++;
+                }
+                if (last < 0) {
+                    return -1;
+                }
+                if (matched == DAY_PREFIX.length) {
+                    int week = readNumber();
+                    int day = last == ' ' ? readNumber() : -1;
+                    if (week < 1 || day < 1) {
+                        throw new IOException("Malformed DAY line at offset " + lineStart);
+                    }
+                    skipLine();
+                    return week << 8 | day;
+                }
+                skipLine();
+            }
+        }
+
+        /**
+         * Reads a number up to the byte after it, or returns -1 if there is no number.
+         */
+        private int readNumber() throws IOException {
+            int value = -1;
+            while (read() >= '0' && last <= '9') {
+                value = Math.max(value, 0) * 10 + last - '0';
+                if (value > MAX_NUMBER) {
+                    throw new IOException("Week or day over " + MAX_NUMBER + " at offset " + lineStart);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Skips the rest of the line, unless the last byte read ended it.
+         */
+        private void skipLine() throws IOException {
+            while (last >= 0 && last != '\n') {
+                read();
+            }
+        }
+
+        private int read() throws IOException {
+            last = in.read();
+            if (last >= 0) {
+                position++;
+            }
+            return last;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.pulpdrew.c25k;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file holding a single record of a fixed size, such as a Checkpoint or a snapshot of the
+ * SessionStats. Records are saved on a background thread, and only the newest one waiting is
+ * written. Each is written whole to a temporary file, synced and renamed over the old one, so
+ * the file always holds either the old record or the new one, and it is read back with a single
+ * read. A read waits for the records saved before it to be written, so it always gets the newest.
+ *
+ * The background thread is a daemon, so a file that is never closed doesn't keep the JVM
+ * running. Closing it writes the records still waiting, and then stops the thread.
+ */
+class RecordFile {
+
+    // The longest that closing waits for the records still waiting to be written
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final File file;
+    private final int size;
+    private final ExecutorService writer;
+
+    // The newest record, or null to delete the file, and whether it is still to be written
+    private byte[] latest;
+    private boolean dirty;
+
+    private final Runnable writeLatest = new Runnable() {
+        @Override
+        public void run() {
+            byte[] record;
+            synchronized (RecordFile.this) {
+                if (!dirty) {
+                    return;
+                }
+                record = latest;
+                dirty = false;
+            }
+            if (record == null) {
+                file.delete();
+            } else {
+                write(record);
+            }
+        }
+    };
+
+    private final Callable<byte[]> readRecord = new Callable<byte[]>() {
+        @Override
+        public byte[] call() {
+            return readFile();
+        }
+    };
+
+    /**
+     * @param file the file to keep the record in.
+     * @param size the size of every record, in bytes.
+     */
+    RecordFile(final File file, int size) {
+        this.file = file;
+        this.size = size;
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RecordFile " + file.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Saves the record in the background, replacing the one in the file. The array must not be
+     * changed afterwards.
+     */
+    synchronized void save(byte[] record) {
+        if (record.length != size) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes rather than " + size);
+        }
+        latest = record;
+        markDirty();
+    }
+
+    /**
+     * Deletes the file in the background.
+     */
+    synchronized void clear() {
+        latest = null;
+        markDirty();
+    }
+
+    /**
+     * Reads the record in the file with a single read, once every record saved before it has
+     * been written.
+     *
+     * @return the record, or null if there is none or it can't be read.
+     */
+    byte[] read() {
+        Future<byte[]> record;
+        try {
+            record = writer.submit(readRecord);
+        } catch (RejectedExecutionException e) {
+            // Closed, and so already written
+            return readFile();
+        }
+        try {
+            return record.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the records still waiting, waiting for them to be written, and stops the background
+     * thread. The file can still be read, but saving in it afterwards throws a
+     * RejectedExecutionException.
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] readFile() {
+        byte[] record = new byte[size];
+        try (FileInputStream in = new FileInputStream(file)) {
+            if (in.read(record) != record.length) {
+                return null;
+            }
+        } catch (IOException e) {
+            // No record
+            return null;
+        }
+        return record;
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            writer.execute(writeLatest);
+        }
+    }
+
+    private void write(byte[] record) {
+        File written = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(written)) {
+            out.write(record);
+            out.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!written.renameTo(file)) {
+            written.delete();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.pulpdrew.c25k;
+
+import java.nio.ByteBuffer;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+/**
+ * Running totals of the training actually done: how long was spent in each type of stage, how
+ * much was run in each of the last few weeks, how many workouts were finished or given up, how
+ * often the time was adjusted, and how many weeks in a row have been trained. Every total is
+ * updated as each session event is recorded, in constant time, so the stats never need the
+ * history to be scanned however many sessions it holds.
+ *
+ * The totals are a fixed size, and are saved as a small snapshot (see StatsFile) when each
+ * workout ends, so the stats can be shown by reading a single record. Time in a stage is
+ * measured on the engine's clock, and only counts while the timer is running. Weeks start on
+ * Monday, in the time zone of the device.
+ */
+class SessionStats {
+
+    // The number of recent weeks that the running time of each is kept for
+    static final int WEEKS = 12;
+
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    // 1 January 1970 was a Thursday, so this moves the start of each week back to Monday
+    private static final long MONDAY_OFFSET_MILLIS = 3L * 24 * 60 * 60 * 1000;
+
+    /*
+     * A snapshot is stored in 140 bytes: int magic, short version, short weeks, 12 ints of
+     * counts and weeks, 4 longs of time in each type of stage, the running time of each recent
+     * week as ints, and a CRC32 of the rest.
+     */
+    static final int SIZE = 140;
+    private static final int MAGIC = 0x43323554;
+    private static final int VERSION = 1;
+    private static final int CHECKED_SIZE = SIZE - 4;
+
+    private static final Stage.StageType[] STAGE_TYPES = Stage.StageType.values();
+
+    // How each session ended, and how it was adjusted on the way
+    private int finished, stopped;
+    private int pauses, addedMinutes, subtractedMinutes, seeks;
+
+    // The milliseconds spent in each type of stage, by ordinal
+    private final long[] stageMillis = new long[STAGE_TYPES.length];
+
+    // The milliseconds run in each of the recent weeks, indexed by the week modulo WEEKS. newestWeek is the latest week in it.
+    private final int[] weekRunMillis = new int[WEEKS];
+    private int newestWeek = -1;
+
+    // Weeks with a finished workout in them, and the streak of them up to the latest
+    private int firstWeek = -1, lastActiveWeek = -1;
+    private int activeWeeks, currentStreak, longestStreak;
+
+    // The session being recorded, which isn't part of the snapshot
+    private boolean inSession;
+    private Stage.StageType stageType;
+    private boolean running;
+    private long since;
+
+    /**
+     * Creates empty stats, with no sessions recorded.
+     */
+    SessionStats() {
+    }
+
+    /**
+     * Records a session event that has just happened. See record(int, Stage, boolean, long, long).
+     */
+    void record(int type, Stage stage, boolean running, long now) {
+        record(type, stage, running, now, localTime());
+    }
+
+    /**
+     * Returns the current time in milliseconds since the epoch, moved into the local time zone,
+     * for the methods that take a local time.
+     */
+    static long localTime() {
+        long time = System.currentTimeMillis();
+        return time + TimeZone.getDefault().getOffset(time);
+    }
+
+    /**
+     * Records a session event, updating every total it affects.
+     *
+     * @param type      one of the HistoryLog.EVENT constants.
+     * @param stage     the stage the workout is on after the event, or null if it is on none.
+     * @param running   whether the timer is running after the event.
+     * @param now       the time of the event on the engine's clock, which the time in each
+     *                  stage is measured with.
+     * @param localTime the time of the event in milliseconds since the epoch, in the local
+     *                  time zone, which decides the week it falls in.
+     */
+    void record(int type, Stage stage, boolean running, long now, long localTime) {
+
+        int week = weekOf(localTime);
+
+        // A start or a restore begins a new session, and whatever came before it isn't counted
+        if (type == HistoryLog.EVENT_START || type == HistoryLog.EVENT_RESTORE) {
+            inSession = true;
+        } else if (inSession) {
+            countTime(now, week);
+        }
+
+        switch (type) {
+            case HistoryLog.EVENT_PAUSE:
+                pauses++;
+                break;
+            case HistoryLog.EVENT_ADD_MINUTE:
+                addedMinutes++;
+                break;
+            case HistoryLog.EVENT_SUBTRACT_MINUTE:
+                subtractedMinutes++;
+                break;
+            case HistoryLog.EVENT_SEEK:
+                seeks++;
+                break;
+            case HistoryLog.EVENT_FINISH:
+                if (inSession) {
+                    finished++;
+                    countActiveWeek(week);
+                    inSession = false;
+                }
+                break;
+            case HistoryLog.EVENT_STOP:
+                if (inSession) {
+                    stopped++;
+                    inSession = false;
+                }
+                break;
+        }
+
+        this.stageType = stage != null ? stage.getStageType() : null;
+        this.running = running;
+        this.since = now;
+    }
+
+    /*
+     * Accessor methods
+     */
+
+    int numberOfSessions() {
+        return finished + stopped;
+    }
+
+    int numberOfFinished() {
+        return finished;
+    }
+
+    int numberOfStopped() {
+        return stopped;
+    }
+
+    int numberOfPauses() {
+        return pauses;
+    }
+
+    int numberOfAddedMinutes() {
+        return addedMinutes;
+    }
+
+    int numberOfSubtractedMinutes() {
+        return subtractedMinutes;
+    }
+
+    int numberOfSeeks() {
+        return seeks;
+    }
+
+    /**
+     * Returns the time spent in stages of the given type, in milliseconds.
+     */
+    long getStageMillis(Stage.StageType type) {
+        return stageMillis[type.ordinal()];
+    }
+
+    /**
+     * Returns the time spent running in the week that the given time falls in, in milliseconds,
+     * or 0 if that week is older than the last WEEKS weeks.
+     *
+     * @param localTime a time in the week, in milliseconds since the epoch in the local time zone.
+     */
+    long getWeekRunMillis(long localTime) {
+        int week = weekOf(localTime);
+        if (newestWeek < 0 || week > newestWeek || week <= newestWeek - WEEKS) {
+            return 0;
+        }
+        return weekRunMillis[week % WEEKS];
+    }
+
+    /**
+     * Returns the number of weeks in a row with a finished workout, counting back from the week
+     * that the given time falls in, or from the week before it if this week has none yet.
+     */
+    int getCurrentStreak(long localTime) {
+        return lastActiveWeek >= weekOf(localTime) - 1 ? currentStreak : 0;
+    }
+
+    int getLongestStreak() {
+        return longestStreak;
+    }
+
+    /**
+     * Returns the percentage of the weeks since the first finished workout that had a finished
+     * workout in them, up to the week that the given time falls in.
+     */
+    int getWeeklyAdherence(long localTime) {
+        if (firstWeek < 0) {
+            return 0;
+        }
+        int weeks = Math.max(weekOf(localTime), lastActiveWeek) - firstWeek + 1;
+        return activeWeeks * 100 / weeks;
+    }
+
+    /**
+     * Returns the percentage of the sessions that were finished rather than stopped.
+     */
+    int getFinishedPercent() {
+        return numberOfSessions() == 0 ? 0 : finished * 100 / numberOfSessions();
+    }
+
+    /*
+     * Reading and writing
+     */
+
+    void writeTo(ByteBuffer out) {
+        int start = out.position();
+        out.putInt(MAGIC);
+        out.putShort((short) VERSION);
+        out.putShort((short) WEEKS);
+        out.putInt(finished);
+        out.putInt(stopped);
+        out.putInt(pauses);
+        out.putInt(addedMinutes);
+        out.putInt(subtractedMinutes);
+        out.putInt(seeks);
+        out.putInt(newestWeek);
+        out.putInt(firstWeek);
+        out.putInt(lastActiveWeek);
+        out.putInt(activeWeeks);
+        out.putInt(currentStreak);
+        out.putInt(longestStreak);
+        for (long millis : stageMillis) {
+            out.putLong(millis);
+        }
+        for (int millis : weekRunMillis) {
+            out.putInt(millis);
+        }
+        out.putInt(checksum(out.array(), out.arrayOffset() + start));
+    }
+
+    /**
+     * Reads stats written by writeTo. No session is in progress in the stats that are read.
+     *
+     * @return the stats, or null if the bytes are not a whole, valid snapshot.
+     */
+    static SessionStats readFrom(ByteBuffer in) {
+        if (in.remaining() < SIZE) {
+            return null;
+        }
+        int start = in.position();
+        if (in.getInt(start + CHECKED_SIZE) != checksum(in.array(), in.arrayOffset() + start)
+                || in.getInt() != MAGIC || in.getShort() != VERSION || in.getShort() != WEEKS) {
+            return null;
+        }
+        SessionStats stats = new SessionStats();
+        stats.finished = in.getInt();
+        stats.stopped = in.getInt();
+        stats.pauses = in.getInt();
+        stats.addedMinutes = in.getInt();
+        stats.subtractedMinutes = in.getInt();
+        stats.seeks = in.getInt();
+        stats.newestWeek = in.getInt();
+        stats.firstWeek = in.getInt();
+        stats.lastActiveWeek = in.getInt();
+        stats.activeWeeks = in.getInt();
+        stats.currentStreak = in.getInt();
+        stats.longestStreak = in.getInt();
+        for (int i = 0; i < stats.stageMillis.length; i++) {
+            stats.stageMillis[i] = in.getLong();
+        }
+        for (int i = 0; i < WEEKS; i++) {
+            stats.weekRunMillis[i] = in.getInt();
+        }
+        in.getInt();
+        return stats;
+    }
+
+    /**
+     * Counts the time since the last event towards the type of stage the workout was on, if the
+     * timer was running through it.
+     */
+    private void countTime(long now, int week) {
+        if (!running || stageType == null || now <= since) {
+            return;
+        }
+        long millis = now - since;
+        stageMillis[stageType.ordinal()] += millis;
+        if (stageType == Stage.StageType.RUN) {
+            moveToWeek(week);
+            if (week > newestWeek - WEEKS) {
+                weekRunMillis[week % WEEKS] += (int) millis;
+            }
+        }
+    }
+
+    /**
+     * Makes the given week the newest of the recent weeks, clearing the weeks skipped over. At
+     * most WEEKS weeks are ever cleared.
+     */
+    private void moveToWeek(int week) {
+        if (week <= newestWeek) {
+            return;
+        }
+        int from = newestWeek < 0 ? week : Math.max(newestWeek + 1, week - WEEKS + 1);
+        for (int i = from; i <= week; i++) {
+            weekRunMillis[i % WEEKS] = 0;
+        }
+        newestWeek = week;
+    }
+
+    /**
+     * Counts a finished workout in the given week towards the weeks trained and the streak.
+     */
+    private void countActiveWeek(int week) {
+        if (firstWeek < 0) {
+            firstWeek = week;
+        }
+        if (week <= lastActiveWeek) {
+            return;
+        }
+        activeWeeks++;
+        currentStreak = week == lastActiveWeek + 1 ? currentStreak + 1 : 1;
+        longestStreak = Math.max(longestStreak, currentStreak);
+        lastActiveWeek = week;
+    }
+
+    /**
+     * Returns the index of the week, starting on Monday, that the given local time falls in.
+     */
+    private static int weekOf(long localTime) {
+        return (int) ((localTime + MONDAY_OFFSET_MILLIS) / WEEK_MILLIS);
+    }
+
+    private static int checksum(byte[] bytes, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, CHECKED_SIZE);
+        return (int) crc.getValue();
+    }
+}
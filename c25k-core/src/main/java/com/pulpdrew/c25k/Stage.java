@@ -0,0 +1,111 @@
+package com.pulpdrew.c25k;
+
+import java.util.List;
+
+/**
+ * Class representing a single stage in the day, such as
+ * RUN FOR 2 MINUTES, or COOLDOWN FOR 5 MINUTES.
+ *
+ * A Plan doesn't keep a Stage for every stage of every day. It keeps each day as an array of
+ * stages packed into shorts, and hands out one shared Stage for each type and length.
+ */
+class Stage {
+
+    /*
+     * A packed stage has the ordinal of its type in the top 2 bits and its length in seconds in
+     * the low 14. This is also the format of the stages in the plan file.
+     */
+    static final int TYPE_SHIFT = 14;
+    static final int LENGTH_MASK = 0x3FFF;
+
+    // Cached so that unpacking a stage type does not copy the values array
+    private static final StageType[] STAGE_TYPES = StageType.values();
+
+    /**
+     * Enum representing the possible types of stages and the colors and
+     * string values associated with them. Colors are ARGB ints, as used by android.graphics.Color.
+     * The string values are English names for logs and traces. The app shows the localized
+     * labels of its StageRenderTable instead.
+     */
+    public static enum StageType {
+
+        WARM_UP("Warm Up", 0xFF0000FF),
+        COOL_DOWN("Cool down", 0xFF0000FF),
+        RUN("Run", 0xFFFF0000),
+        WALK("Walk", 0xFF00FF00);
+
+        private String name;
+        private int color;
+        StageType(String name, int color) {
+            this.name = name;
+            this.color = color;
+        }
+
+        public String toString() {
+            return name;
+        }
+
+        public int getColor() {
+            return color;
+        }
+    }
+
+    private final int length;
+    private final StageType stageType;
+
+    Stage(StageType stageType, int length) {
+        this.length = length;
+        this.stageType = stageType;
+    }
+
+    /**
+     * Returns the length of the stage, in seconds.
+     */
+    int getLength() {
+        return length;
+    }
+
+    StageType getStageType() {
+        return stageType;
+    }
+
+    /**
+     * Returns this stage packed into a short.
+     */
+    short pack() {
+        return pack(stageType, length);
+    }
+
+    /*
+     * Packing and unpacking
+     */
+
+    /**
+     * Packs a stage into a short.
+     *
+     * @throws IllegalArgumentException if the length is negative or over LENGTH_MASK seconds,
+     *                                  which the packed stage has no room for.
+     */
+    static short pack(StageType type, int length) {
+        if (length < 0 || length > LENGTH_MASK) {
+            throw new IllegalArgumentException("Stage length " + length + "s is out of range");
+        }
+        return (short) (type.ordinal() << TYPE_SHIFT | length & LENGTH_MASK);
+    }
+
+    static short[] pack(List<Stage> stages) {
+        short[] packed = new short[stages.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = stages.get(i).pack();
+        }
+        return packed;
+    }
+
+    static StageType typeOf(short packed) {
+        return STAGE_TYPES[(packed & 0xFFFF) >>> TYPE_SHIFT];
+    }
+
+    static int lengthOf(short packed) {
+        return packed & LENGTH_MASK;
+    }
+}
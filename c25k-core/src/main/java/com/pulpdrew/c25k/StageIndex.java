@@ -0,0 +1,79 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Prefix sums of the lengths of a day's stages, so that the stage at any point in the day can
+ * be found with a binary search rather than by stepping through the stages one at a time.
+ * Stage lengths are whole seconds, so the sums are kept in seconds and times are given in
+ * milliseconds, on the same scale as the Timer.
+ */
+class StageIndex {
+
+    // starts[i] is the second of the day that stage i starts at, and the last entry is the day's length
+    private final int[] starts;
+
+    /**
+     * @param stages the day's stages, packed as in Stage.pack.
+     */
+    StageIndex(short[] stages) {
+        starts = new int[stages.length + 1];
+        for (int i = 0; i < stages.length; i++) {
+            starts[i + 1] = starts[i] + Stage.lengthOf(stages[i]);
+        }
+    }
+
+    int numberOfStages() {
+        return starts.length - 1;
+    }
+
+    /**
+     * Returns the length of the whole day, in milliseconds.
+     */
+    long getLength() {
+        return starts[starts.length - 1] * 1000L;
+    }
+
+    /**
+     * Returns the time through the day that the given stage starts at, in milliseconds. Passing
+     * the number of stages gives the end of the day.
+     */
+    long getStart(int stage) {
+        return starts[stage] * 1000L;
+    }
+
+    /**
+     * Returns the time through the day that the given stage ends at, in milliseconds.
+     */
+    long getEnd(int stage) {
+        return starts[stage + 1] * 1000L;
+    }
+
+    /**
+     * Returns the index of the stage that is running at the given time through the day.
+     *
+     * @param elapsed the time since the start of the day, in milliseconds.
+     * @return the stage at that time, 0 for a time before the start of the day, or the number
+     * of stages for a time at or after the end of the day.
+     */
+    int stageAt(long elapsed) {
+
+        if (elapsed < 0) {
+            return 0;
+        }
+        if (elapsed >= getLength()) {
+            return numberOfStages();
+        }
+
+        // Find the last stage that starts at or before the time, which skips any stage of length 0
+        int second = (int) (elapsed / 1000);
+        int low = 0, high = numberOfStages() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= second) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
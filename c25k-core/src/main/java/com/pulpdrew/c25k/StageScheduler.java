@@ -0,0 +1,68 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Keeps a single exact alarm set for the next stage boundary of a running day. The alarm is set
+ * again for the boundary after it each time the workout reaches a stage, so a workout wakes the
+ * device once per stage. Pausing, resuming or adjusting the timer replaces that one alarm rather
+ * than one for every stage still to come, so there is never more than one alarm waiting.
+ *
+ * The stages are too short for the alarms that the platform limits while the device is idle, so
+ * the AlarmClock has to go off on time regardless, as AndroidAlarmClock does.
+ *
+ * The alarm goes off a little ahead of the boundary, so that whatever has to happen just before
+ * a stage starts, such as its cue, can be done by a device that the alarm has just woken.
+ */
+class StageScheduler {
+
+    /**
+     * Sets and cancels the one alarm of the scheduler.
+     */
+    interface AlarmClock {
+
+        /**
+         * Sets the alarm, replacing it if it is already set.
+         *
+         * @param triggerAtTime the time of the alarm, on the same clock as the workout's timer.
+         */
+        void set(long triggerAtTime);
+
+        void cancel();
+    }
+
+    private final AlarmClock alarmClock;
+    private final long leadMillis;
+
+    // Whether the alarm is set, so that cancelling it when it isn't costs nothing
+    private boolean scheduled;
+
+    /**
+     * @param alarmClock the alarm clock to set the alarm on.
+     * @param leadMillis how long before each boundary the alarm goes off, in milliseconds.
+     */
+    StageScheduler(AlarmClock alarmClock, long leadMillis) {
+        this.alarmClock = alarmClock;
+        this.leadMillis = leadMillis;
+    }
+
+    /**
+     * Sets the alarm for just before the end of the current stage, replacing the one set by an
+     * earlier plan. It should be called on every change of stage, as well as whenever the timer
+     * is resumed or adjusted.
+     *
+     * @param stageEnd the time that the current stage will end at.
+     */
+    void plan(long stageEnd) {
+        alarmClock.set(stageEnd - leadMillis);
+        scheduled = true;
+    }
+
+    /**
+     * Cancels the alarm, if it is set.
+     */
+    void cancel() {
+        if (scheduled) {
+            alarmClock.cancel();
+            scheduled = false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pulpdrew.c25k;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * A file holding the latest snapshot of the SessionStats. The stats are copied into a snapshot
+ * on the calling thread, so they can go on changing, and the snapshot is written in the
+ * background by a RecordFile, as checkpoints are.
+ */
+class StatsFile {
+
+    private final RecordFile records;
+
+    StatsFile(File file) {
+        this.records = new RecordFile(file, SessionStats.SIZE);
+    }
+
+    /**
+     * Saves a snapshot of the stats in the background, replacing the one in the file.
+     */
+    void save(SessionStats stats) {
+        ByteBuffer bytes = ByteBuffer.allocate(SessionStats.SIZE);
+        stats.writeTo(bytes);
+        records.save(bytes.array());
+    }
+
+    /**
+     * Reads the snapshot in the file with a single read.
+     *
+     * @return the stats, or empty stats if there is no snapshot or it can't be read.
+     */
+    SessionStats read() {
+        byte[] bytes = records.read();
+        SessionStats stats = bytes != null ? SessionStats.readFrom(ByteBuffer.wrap(bytes)) : null;
+        return stats != null ? stats : new SessionStats();
+    }
+
+    /**
+     * Writes any snapshot still waiting and stops the background thread. See RecordFile.close.
+     */
+    void close() {
+        records.close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.pulpdrew.c25k;
+
+import java.util.Random;
+
+/**
+ * Generates the session events of a runner working through the plan over and over, three
+ * sessions a week, and records them in SessionStats the way WorkoutEngine does. Each session
+ * runs through the stages of its day, now and then pausing, adjusting the time or stopping part
+ * way, so that every total in the stats is exercised. The same seed always gives the same
+ * sessions. Like VirtualClock, it is kept here rather than with its users, the stats benchmark
+ * and the stats tests, so that both can run years of history.
+ */
+class SyntheticSessions {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final long YEAR = 365 * DAY;
+
+    // How likely each stage is to be paused or adjusted, and each session to be given up
+    private static final double PAUSE_CHANCE = 0.05;
+    private static final double ADJUST_CHANCE = 0.03;
+    private static final double STOP_CHANCE = 0.08;
+
+    private final Plan plan;
+    private final Random random;
+
+    // The next day of the plan to run, and the time of the next event on the engine's clock and in local time
+    private int index;
+    private long now;
+    private long localTime;
+
+    /**
+     * @param plan      the plan whose days are run, in order.
+     * @param seed      the seed of the random choices.
+     * @param localTime the local time of the first session, in milliseconds since the epoch.
+     */
+    SyntheticSessions(Plan plan, long seed, long localTime) {
+        this.plan = plan;
+        this.random = new Random(seed);
+        this.localTime = localTime;
+    }
+
+    /**
+     * Records sessions in the stats until the given number of years have passed.
+     *
+     * @return the number of events recorded.
+     */
+    int generate(SessionStats stats, int years) {
+        long end = localTime + years * YEAR;
+        int events = 0;
+        while (localTime < end) {
+            events += nextSession(stats);
+        }
+        return events;
+    }
+
+    /**
+     * Records the next session in the stats, and moves on to the day of the session after it.
+     *
+     * @return the number of events recorded.
+     */
+    int nextSession(SessionStats stats) {
+
+        short[] stages = plan.getStages(index);
+        index = (index + 1) % plan.numberOfDays();
+        int events = 1;
+
+        stats.record(HistoryLog.EVENT_START, null, false, now, localTime);
+        for (short packed : stages) {
+            Stage stage = plan.getStage(packed);
+            stats.record(HistoryLog.EVENT_STAGE, stage, true, now, localTime);
+            events++;
+
+            long left = stage.getLength() * 1000L;
+            if (random.nextDouble() < PAUSE_CHANCE) {
+                long before = (long) (random.nextDouble() * left);
+                advance(before);
+                stats.record(HistoryLog.EVENT_PAUSE, stage, false, now, localTime);
+                advance(MINUTE + (long) (random.nextDouble() * 4 * MINUTE));
+                stats.record(HistoryLog.EVENT_RESUME, stage, true, now, localTime);
+                left -= before;
+                events += 2;
+            }
+            if (random.nextDouble() < ADJUST_CHANCE) {
+                int type = random.nextBoolean() ? HistoryLog.EVENT_ADD_MINUTE : HistoryLog.EVENT_SUBTRACT_MINUTE;
+                stats.record(type, stage, true, now, localTime);
+                events++;
+            }
+            if (random.nextDouble() < STOP_CHANCE / stages.length) {
+                advance((long) (random.nextDouble() * left));
+                stats.record(HistoryLog.EVENT_STOP, stage, true, now, localTime);
+                nextDay();
+                return events + 1;
+            }
+            advance(left);
+        }
+        stats.record(HistoryLog.EVENT_FINISH, null, true, now, localTime);
+        nextDay();
+        return events + 1;
+    }
+
+    private void advance(long millis) {
+        now += millis;
+        localTime += millis;
+    }
+
+    /**
+     * Moves on two or three days, so that there are about three sessions a week.
+     */
+    private void nextDay() {
+        advance((random.nextBoolean() ? 2 : 3) * DAY);
+    }
+}
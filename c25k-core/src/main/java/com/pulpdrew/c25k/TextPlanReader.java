@@ -0,0 +1,167 @@
+package com.pulpdrew.c25k;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Reader for the text format that the days of a plan are written in, one file per day.
+ * The first line of a day is its description, and each line after that is a stage in the
+ * format [StageType] [length in seconds].
+ */
+class TextPlanReader {
+
+    static final String EXTENSION = ".c25k";
+
+    /**
+     * Where the day files of a plan are read from: a directory on the JVM, or the assets on a
+     * device.
+     */
+    interface Source {
+
+        /**
+         * Returns the names of every file in the source.
+         */
+        String[] list() throws IOException;
+
+        InputStream open(String filename) throws IOException;
+    }
+
+    private TextPlanReader() {
+    }
+
+    /**
+     * Reads every "[week]_[day].c25k" file in a directory into a plan, for running the plan on
+     * the JVM.
+     *
+     * @param directory the directory that holds the day files.
+     * @return the plan made up of the days in the directory.
+     * @throws IOException if the directory or a day file cannot be read.
+     */
+    static Plan readPlan(final File directory) throws IOException {
+        return readPlan(new Source() {
+            @Override
+            public String[] list() throws IOException {
+                String[] filenames = directory.list();
+                if (filenames == null) {
+                    throw new IOException("Cannot list " + directory);
+                }
+                return filenames;
+            }
+
+            @Override
+            public InputStream open(String filename) throws IOException {
+                return new FileInputStream(new File(directory, filename));
+            }
+        });
+    }
+
+    /**
+     * Reads every "[week]_[day].c25k" file in a source into a plan, opening each of them once.
+     *
+     * @param source the source that holds the day files, such as the app's assets.
+     * @return the plan made up of the days in the source.
+     * @throws IOException if the source or a day file cannot be read.
+     */
+    static Plan readPlan(Source source) throws IOException {
+
+        // Find the day files, sorted by week and then by day
+        ArrayList<int[]> found = new ArrayList<>();
+        for (String filename : source.list()) {
+            if (!filename.endsWith(EXTENSION)) {
+                continue;
+            }
+            String[] weekAndDay = filename.substring(0, filename.length() - EXTENSION.length()).split("_");
+            try {
+                found.add(new int[]{Integer.parseInt(weekAndDay[0]), Integer.parseInt(weekAndDay[1])});
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // Not a day file
+            }
+        }
+        int[][] sorted = found.toArray(new int[found.size()][]);
+        Arrays.sort(sorted, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]);
+            }
+        });
+
+        int[] weeks = new int[sorted.length];
+        int[] days = new int[sorted.length];
+        String[] descriptions = new String[sorted.length];
+        short[][] stages = new short[sorted.length][];
+        for (int i = 0; i < sorted.length; i++) {
+            weeks[i] = sorted[i][0];
+            days[i] = sorted[i][1];
+
+            ArrayList<Stage> dayStages = new ArrayList<>();
+            try (InputStream in = source.open(weeks[i] + "_" + days[i] + EXTENSION)) {
+                descriptions[i] = readDay(in, dayStages);
+            }
+            stages[i] = Stage.pack(dayStages);
+        }
+
+        return new Plan(weeks, days, descriptions, stages);
+    }
+
+    /**
+     * Reads the stages of a day's text file into stages.
+     *
+     * @param in     the contents of the day's file.
+     * @param stages the list to add the stages of the day to.
+     * @return the description of the day.
+     * @throws IOException if a stage is longer than a stage can be, or negative.
+     */
+    static String readDay(InputStream in, List<Stage> stages) throws IOException {
+
+        Scanner scanner = new Scanner(in);
+
+        // Read the description from the first line of the file.
+        String description = scanner.nextLine();
+
+        /*
+         * Read each line of the file to get the stages in the day
+         * Each line will be in the format [StageType] [length in seconds]
+         */
+        while (scanner.hasNext()) {
+
+            // Split the line at the space
+            String[] line = scanner.nextLine().split(" ");
+
+            // Update the length in seconds
+            int length = Integer.parseInt(line[1]);
+            if (length < 0 || length > Stage.LENGTH_MASK) {
+                throw new IOException("Stage length " + length + "s is out of range");
+            }
+
+            // Add the stage given by the line to the list of stages in the day.
+            stages.add(new Stage(typeOf(line[0]), length));
+        }
+
+        return description;
+    }
+
+    /**
+     * Matches the name of a stage type in a day file to a StageType. An unknown name is a walk.
+     */
+    static Stage.StageType typeOf(String name) {
+        switch (name) {
+            case "WARMUP":
+                return Stage.StageType.WARM_UP;
+            case "COOLDOWN":
+                return Stage.StageType.COOL_DOWN;
+            case "RUN":
+                return Stage.StageType.RUN;
+            case "WALK":
+                return Stage.StageType.WALK;
+            default:
+                return Stage.StageType.WALK;
+        }
+    }
+}
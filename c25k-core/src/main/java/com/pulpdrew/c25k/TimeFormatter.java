@@ -0,0 +1,85 @@
+package com.pulpdrew.c25k;
+
+/**
+ * Formats a time as mm:ss into a reusable char buffer, so that updating the timer text on
+ * every tick allocates nothing. The formatter is itself a CharSequence over the buffer, so it
+ * can be copied into the text a view already has rather than wrapped afresh on every tick.
+ */
+class TimeFormatter implements CharSequence {
+
+    // Room for up to three digits of minutes, a colon and two digits of seconds
+    private final char[] buffer = new char[6];
+    private int length;
+    private long formattedSeconds;
+
+    TimeFormatter() {
+        reset();
+    }
+
+    /**
+     * Formats the given time into the buffer, unless it is in the same second as the last time
+     * that was formatted.
+     *
+     * @param millis the time to format, in milliseconds.
+     * @return true if the buffer changed, or false if the time shows the same as before.
+     */
+    boolean format(long millis) {
+
+        long totalSeconds = millis / 1000;
+        if (totalSeconds == formattedSeconds) {
+            return false;
+        }
+        formattedSeconds = totalSeconds;
+
+        int minutes = (int) Math.min(999, totalSeconds / 60);
+        int seconds = (int) (totalSeconds % 60);
+
+        // Write the minutes with at least two digits, then the seconds with exactly two
+        length = 0;
+        if (minutes >= 100) {
+            buffer[length++] = (char) ('0' + minutes / 100);
+        }
+        buffer[length++] = (char) ('0' + minutes / 10 % 10);
+        buffer[length++] = (char) ('0' + minutes % 10);
+        buffer[length++] = ':';
+        buffer[length++] = (char) ('0' + seconds / 10);
+        buffer[length++] = (char) ('0' + seconds % 10);
+
+        return true;
+    }
+
+    /**
+     * Forgets the last time that was formatted, so that the next call to format always
+     * writes the buffer. Used when the text has been changed by something else.
+     */
+    void reset() {
+        formattedSeconds = -1;
+    }
+
+    char[] getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + length);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
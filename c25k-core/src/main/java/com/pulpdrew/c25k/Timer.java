@@ -0,0 +1,409 @@
+package com.pulpdrew.c25k;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class representing a timer with second-accuracy. Accepts any number of listeners that
+ * it will update when the timer is reset to the beginning of its time, runs out, changes by a
+ * second, is adjusted, or is paused or played.
+ *
+ * While running, the timer keeps an absolute deadline on its Clock rather than counting
+ * down ticks, so the time remaining never drifts no matter how often the timer is paused,
+ * resumed or adjusted. A single tick runnable is rescheduled to land on each second boundary.
+ *
+ * The timer itself runs on the thread of its Clock, but listeners can be added and removed
+ * from any thread. They are kept in an array that is copied on every change and swapped in
+ * with a compare-and-set, so sending an event takes no lock and allocates nothing. A listener
+ * removed while an event is being sent may still get that one event. A listener that is slow,
+ * or on another thread, can be wrapped in a CoalescingTimerListener so that ticks never queue
+ * up for it.
+ */
+public class Timer {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    /*
+     * Instance and state variables
+     */
+    private final Clock clock;
+    private final Runnable tickRunnable;
+    private long duration;
+
+    // The deadline is only meaningful while running, and remaining only while paused.
+    private long deadline, remaining;
+    private boolean isRunning;
+    private boolean ticking;
+
+    private static final TimerListener[] NO_LISTENERS = new TimerListener[0];
+    private final AtomicReference<TimerListener[]> listeners = new AtomicReference<>(NO_LISTENERS);
+
+    /**
+     * Creates a new timer that is not running and has duration 0 seconds
+     *
+     * @param clock the clock to measure time and schedule ticks with.
+     */
+    public Timer(Clock clock) {
+        this.clock = clock;
+        this.tickRunnable = new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        };
+        isRunning = false;
+        ticking = true;
+        duration = 0;
+        remaining = 0;
+    }
+
+    /**
+     * Adds a minute to the timer. If that takes the timer above its
+     * duration, the restart listener is notified.
+     */
+    public void addMinute() {
+
+        // add a minute to the deadline, or to the remaining time if paused
+        if (isRunning) {
+            deadline += MINUTE;
+        } else {
+            remaining += MINUTE;
+        }
+
+        // notify listeners if the timer is above its original duration. They are expected to reset it.
+        if (getRemainingTime() > duration) {
+            notifyRestartListeners();
+            return;
+        }
+
+        // tick so that the updated time is sent to listeners
+        notifyAdjustedListeners();
+        tick();
+
+    }
+
+    /**
+     * Subtracts a minute from the timer. If the timer
+     * has less than a minute left, then just end the timer.
+     */
+    public void subtractMinute() {
+
+        // subtract a minute from the deadline, or from the remaining time if paused
+        if (isRunning) {
+            deadline -= MINUTE;
+        } else {
+            remaining -= MINUTE;
+        }
+
+        // If the timer has no time left, end the timer now.
+        if (getRemainingTime() <= 0) {
+            deadline = clock.elapsedRealtime();
+            finish();
+            return;
+        }
+
+        // tick so that the updated time is sent to listeners
+        notifyAdjustedListeners();
+        tick();
+
+    }
+
+    /**
+     * Pauses or plays the timer depending on the value of run.
+     */
+    public void setRunning(boolean run) {
+
+        if (run == isRunning) {
+            return;
+        }
+
+        if (run) {
+            // Set a new deadline from the time that was remaining when the timer was paused
+            deadline = clock.elapsedRealtime() + remaining;
+            isRunning = true;
+            notifyPauseListeners();
+            tick();
+        } else {
+
+            // Freeze the remaining time and stop ticking.
+            remaining = getRemainingTime();
+            isRunning = false;
+            clock.removeCallbacks(tickRunnable);
+            notifyPauseListeners();
+        }
+
+    }
+
+    /**
+     * Resets the timer to the given time. The timer will start running regardless of
+     * the current value of isRunning.
+     */
+    public void resetTo(int seconds) {
+        duration = seconds * SECOND;
+        remaining = duration;
+        deadline = clock.elapsedRealtime() + duration;
+        isRunning = true;
+        tick();
+    }
+
+    /**
+     * Resets the timer to the given time, starting from the deadline that the timer just finished
+     * at rather than from now. Consecutive stages started this way line up exactly with each other,
+     * however late the finish was noticed.
+     */
+    public void continueTo(int seconds) {
+        duration = seconds * SECOND;
+        remaining = duration;
+        deadline += duration;
+        isRunning = true;
+        tick();
+    }
+
+    /**
+     * Sets the timer to a point part way through a stage of the given length, keeping it
+     * running or paused as it is.
+     *
+     * @param seconds         the length of the stage.
+     * @param remainingMillis the time left in the stage, in milliseconds.
+     */
+    public void seekTo(int seconds, long remainingMillis) {
+        duration = seconds * SECOND;
+        remaining = remainingMillis;
+        if (isRunning) {
+            deadline = clock.elapsedRealtime() + remainingMillis;
+        }
+        notifyAdjustedListeners();
+        tick();
+    }
+
+    /**
+     * Sets whether the timer sends its listener a tick every second. When it doesn't, the timer
+     * only wakes up at its deadline, which saves waking the CPU when nothing shows the ticks.
+     */
+    public void setTicking(boolean ticking) {
+        this.ticking = ticking;
+        if (isRunning) {
+            tick();
+        }
+    }
+
+    /**
+     * Brings the timer up to date with its clock, finishing it if the deadline has passed.
+     * Used when the ticks may have been held up, such as while the device was asleep.
+     */
+    public void update() {
+        if (isRunning) {
+            tick();
+        }
+    }
+
+    /*
+     * Accessor methods
+     */
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the time remaining, in milliseconds, measured against the deadline if the timer
+     * is running.
+     */
+    public long getRemainingTime() {
+        if (isRunning) {
+            return Math.max(0, deadline - clock.elapsedRealtime());
+        }
+        return Math.max(0, remaining);
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Returns the time on the clock that the timer will finish at if it keeps running.
+     */
+    public long getDeadline() {
+        return isRunning ? deadline : clock.elapsedRealtime() + remaining;
+    }
+
+    /*
+     * Utility methods
+     */
+
+    private void finish() {
+        clock.removeCallbacks(tickRunnable);
+
+        // A paused timer finishes now, so that continueTo starts from now
+        if (!isRunning) {
+            deadline = clock.elapsedRealtime();
+        }
+        this.isRunning = false;
+        this.remaining = 0;
+        notifyFinishListeners();
+    }
+
+    /**
+     * Sends the remaining time to the listener and, if the timer is running, schedules the
+     * next tick for the next second boundary before the deadline, or for the deadline itself
+     * if the timer is not ticking.
+     */
+    private void tick() {
+        clock.removeCallbacks(tickRunnable);
+
+        long millisecondsLeft = getRemainingTime();
+        if (isRunning && millisecondsLeft <= 0) {
+            finish();
+            return;
+        }
+
+        if (ticking) {
+            notifyTickListeners(millisecondsLeft);
+        }
+
+        if (isRunning && ticking) {
+            long untilNextSecond = millisecondsLeft % SECOND;
+            clock.postDelayed(tickRunnable, untilNextSecond == 0 ? SECOND : untilNextSecond);
+        } else if (isRunning) {
+            clock.postDelayed(tickRunnable, millisecondsLeft);
+        }
+    }
+
+    /*
+     * Methods for listeners
+     */
+
+    /**
+     * Adds a listener, which gets every event sent after this returns. Can be called from any
+     * thread.
+     */
+    public void addTimerListener(TimerListener listener) {
+        while (true) {
+            TimerListener[] current = listeners.get();
+            TimerListener[] added = Arrays.copyOf(current, current.length + 1);
+            added[current.length] = listener;
+            if (listeners.compareAndSet(current, added)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a listener, if it was added. Can be called from any thread.
+     */
+    public void removeTimerListener(TimerListener listener) {
+        while (true) {
+            TimerListener[] current = listeners.get();
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == listener) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+
+            TimerListener[] removed = current.length == 1 ? NO_LISTENERS : new TimerListener[current.length - 1];
+            System.arraycopy(current, 0, removed, 0, index);
+            System.arraycopy(current, index + 1, removed, index, current.length - index - 1);
+            if (listeners.compareAndSet(current, removed)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of listeners that have been added and not removed.
+     */
+    public int numberOfListeners() {
+        return listeners.get().length;
+    }
+
+    private void notifyTickListeners(long millis) {
+        for (TimerListener listener : listeners.get()) {
+            listener.onTimerTick(millis);
+        }
+    }
+
+    private void notifyFinishListeners() {
+        for (TimerListener listener : listeners.get()) {
+            listener.onTimerFinish();
+        }
+    }
+
+    private void notifyRestartListeners() {
+        for (TimerListener listener : listeners.get()) {
+            listener.onTimerRestart();
+        }
+    }
+
+    private void notifyAdjustedListeners() {
+        long millisLeft = getRemainingTime();
+        for (TimerListener listener : listeners.get()) {
+            listener.onTimerAdjusted(millisLeft);
+        }
+    }
+
+    private void notifyPauseListeners() {
+        for (TimerListener listener : listeners.get()) {
+            listener.onTimerPauseChanged(isRunning);
+        }
+    }
+
+    /**
+     * Receives the events of a timer, on the thread of its clock.
+     */
+    public interface TimerListener {
+
+        /**
+         * Called when adding a minute takes the timer over its duration. The listener is
+         * expected to reset it.
+         */
+        void onTimerRestart();
+
+        void onTimerFinish();
+
+        void onTimerTick(long millisRemaining);
+
+        /**
+         * Called when the time left is changed by adding or subtracting a minute or by seeking,
+         * before the tick that sends the new time.
+         */
+        void onTimerAdjusted(long millisRemaining);
+
+        /**
+         * Called when the timer is paused or played, but not when it stops by finishing.
+         */
+        void onTimerPauseChanged(boolean running);
+    }
+
+    /**
+     * A listener that ignores every event, for listeners that only want some of them.
+     */
+    public static class SimpleTimerListener implements TimerListener {
+
+        @Override
+        public void onTimerRestart() {
+        }
+
+        @Override
+        public void onTimerFinish() {
+        }
+
+        @Override
+        public void onTimerTick(long millisRemaining) {
+        }
+
+        @Override
+        public void onTimerAdjusted(long millisRemaining) {
+        }
+
+        @Override
+        public void onTimerPauseChanged(boolean running) {
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.pulpdrew.c25k;
+
+import java.util.Arrays;
+
+/**
+ * Clock that only moves when it is told to, running each posted runnable at exactly the time
+ * its delay runs out. It lets a Timer or a WorkoutEngine be driven through hours of workouts in
+ * milliseconds. Only a handful of posts are ever pending at once, one for the Timer and one for
+ * each scheduler, so they are kept in small arrays in order of time, and posting allocates nothing.
+ *
+ * The wall-clock time is the clock's time counted from a boot time, so a device that restarts
+ * can be stood in for by a new clock with a later boot time.
+ */
+public class VirtualClock implements Clock {
+
+    private final long bootTime;
+    private long now;
+
+    // The pending posts in order of time, with posts for the same time in the order they were made
+    private Runnable[] posted = new Runnable[4];
+    private long[] postedAt = new long[4];
+    private int count;
+
+    /**
+     * Creates a clock at 0 that booted at the start of the epoch.
+     */
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Creates a clock at 0 that booted at the given wall-clock time.
+     */
+    public VirtualClock(long bootTime) {
+        this.bootTime = bootTime;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return now;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return bootTime + now;
+    }
+
+    @Override
+    public void postDelayed(Runnable runnable, long delayMillis) {
+        long time = now + delayMillis;
+        if (count == posted.length) {
+            posted = Arrays.copyOf(posted, count * 2);
+            postedAt = Arrays.copyOf(postedAt, count * 2);
+        }
+        int index = count;
+        while (index > 0 && postedAt[index - 1] > time) {
+            posted[index] = posted[index - 1];
+            postedAt[index] = postedAt[index - 1];
+            index--;
+        }
+        posted[index] = runnable;
+        postedAt[index] = time;
+        count++;
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (posted[i] != runnable) {
+                posted[kept] = posted[i];
+                postedAt[kept] = postedAt[i];
+                kept++;
+            }
+        }
+        for (int i = kept; i < count; i++) {
+            posted[i] = null;
+        }
+        count = kept;
+    }
+
+    /**
+     * Moves the clock forward, running every post that falls due on the way.
+     */
+    public void advance(long millis) {
+        advanceTo(now + millis);
+    }
+
+    /**
+     * Moves the clock forward to the given time, running every post that falls due on the way,
+     * each at its own time. The clock never goes backwards, so an earlier time is ignored.
+     */
+    public void advanceTo(long time) {
+        while (count > 0 && postedAt[0] <= time) {
+            Runnable runnable = posted[0];
+            now = Math.max(now, postedAt[0]);
+            count--;
+            System.arraycopy(posted, 1, posted, 0, count);
+            System.arraycopy(postedAt, 1, postedAt, 0, count);
+            posted[count] = null;
+            runnable.run();
+        }
+        now = Math.max(now, time);
+    }
+}
@@ -0,0 +1,397 @@
+package com.pulpdrew.c25k;
+
+/**
+ * State machine for a running workout: which day and stage it is on, whether the timer is
+ * running, and how it moves between stages as the timer runs out or is adjusted. Finishing the
+ * last stage ends the workout and marks the day complete.
+ *
+ * The engine has no dependency on Android. Time comes from the Clock it is given, and every
+ * change of state is reported to an EventSink, which is where the platform adds the cues,
+ * notification and alarms. Driven by a clock that is advanced by hand, a whole day can be run
+ * through in however little time it takes to compute.
+ *
+ * Every session event is recorded in the day's HistoryLog, and in the SessionStats if the
+ * engine has been given them.
+ */
+class WorkoutEngine implements Timer.TimerListener {
+
+    private static final long MINUTE = 60 * 1000;
+
+    /**
+     * Receives the changes in the state of the workout, on the thread that drives the engine.
+     */
+    interface EventSink {
+
+        /**
+         * Called when the workout moves to a new stage, including the first stage.
+         *
+         * @param forward whether the workout moved on to the stage, rather than back to it.
+         *                When the workout moves on because the previous stage ran out, the
+         *                stage starts where that one ended, so the stages after it keep their
+         *                times. A change of stage made by adjusting the time or seeking is
+         *                followed by onTimerAdjusted.
+         */
+        void onStageChanged(Stage stage, int stageNumber, boolean forward);
+
+        void onPauseChanged(boolean running);
+
+        /**
+         * Called when the workout is moved through the day by adding or taking away a minute or
+         * by seeking, which moves the end of the current stage and of every stage after it.
+         * Any change of stage has already been sent.
+         */
+        void onTimerAdjusted();
+
+        void onTimerTick(long millisLeft);
+
+        /**
+         * Called when the last stage runs out. The day has been marked complete, and the
+         * workout ends straight afterwards.
+         */
+        void onWorkoutFinished();
+
+        /**
+         * Called when the workout ends, whether it finished or was stopped.
+         */
+        void onWorkoutEnded();
+    }
+
+    private final Clock clock;
+    private final Timer timer;
+    private final EventSink sink;
+    private SessionStats stats;
+
+    // State variables
+    private boolean started;
+    private boolean timerRunning;
+    private Day day;
+    private Stage stage;
+
+    /**
+     * Creates an engine with no workout running.
+     *
+     * @param clock the clock that the timer measures the stages with.
+     * @param sink  the sink that changes in state are sent to.
+     */
+    WorkoutEngine(Clock clock, EventSink sink) {
+        this.clock = clock;
+        this.sink = sink;
+        this.timer = new Timer(clock);
+        timer.addTimerListener(this);
+    }
+
+    /**
+     * Starts the given day from its first stage, stopping any workout that is already running.
+     */
+    void start(Day day) {
+
+        if (started) {
+            stop();
+        }
+
+        this.day = day;
+        started = true;
+        day.reset();
+        record(HistoryLog.EVENT_START, 0);
+
+        increaseStage();
+    }
+
+    /**
+     * Picks up a workout that was running in another process from its checkpoint, stopping any
+     * workout that is already running. The time that has passed since the checkpoint counts
+     * towards the workout if it was running, which may move it on several stages or finish it.
+     *
+     * @param day        the day of the checkpoint.
+     * @param checkpoint a checkpoint from getCheckpoint, on the same clock.
+     */
+    void resume(Day day, Checkpoint checkpoint) {
+
+        if (started) {
+            stop();
+        }
+
+        this.day = day;
+        started = true;
+
+        StageIndex index = day.getStageIndex();
+        long elapsed = checkpoint.getElapsedTime(index, clock.elapsedRealtime());
+        int target = index.stageAt(elapsed);
+        if (target == index.numberOfStages()) {
+            stage = null;
+            record(HistoryLog.EVENT_RESTORE, checkpoint.getStage());
+            finish();
+            return;
+        }
+
+        // Put the paused timer straight at that point, and run it if the workout was running, so
+        // that the first time sent is the time left rather than the length of the stage
+        stage = day.moveTo(target);
+        timerRunning = checkpoint.isRunning();
+        record(HistoryLog.EVENT_RESTORE, checkpoint.getStage());
+        timer.seekTo(stage.getLength(), index.getEnd(target) - Math.max(0, elapsed));
+        timer.setRunning(timerRunning);
+        sink.onStageChanged(stage, target, false);
+    }
+
+    /**
+     * Stops the running workout before it is finished.
+     */
+    void stop() {
+        record(HistoryLog.EVENT_STOP, day.getStageNumber());
+        end();
+    }
+
+    /**
+     * Pauses or plays the timer, depending on the state of timerRunning.
+     */
+    void togglePause() {
+        timerRunning = !timerRunning;
+        timer.setRunning(timerRunning);
+        record(timerRunning ? HistoryLog.EVENT_RESUME : HistoryLog.EVENT_PAUSE, day.getStageNumber());
+        sink.onPauseChanged(timerRunning);
+    }
+
+    /*
+     * Adding a minute moves the workout back a minute through the day, and taking one away moves
+     * it on, across as many stages as that takes.
+     */
+
+    void addMinute() {
+        record(HistoryLog.EVENT_ADD_MINUTE, day.getStageNumber());
+        moveTo(getElapsedTime() - MINUTE);
+        sink.onTimerAdjusted();
+    }
+
+    void subtractMinute() {
+        record(HistoryLog.EVENT_SUBTRACT_MINUTE, day.getStageNumber());
+        moveTo(getElapsedTime() + MINUTE);
+        sink.onTimerAdjusted();
+    }
+
+    /**
+     * Moves the workout to the given time through the day, keeping it paused if it is paused.
+     * A time before the start of the day goes to the start of the first stage, and a time at or
+     * after the end of the day finishes it.
+     *
+     * @param elapsed the time since the start of the day, counting every stage at its length.
+     */
+    void seekTo(long elapsed) {
+        if (!started) {
+            return;
+        }
+        record(HistoryLog.EVENT_SEEK, (int) (Math.max(0, elapsed) / 1000));
+        moveTo(elapsed);
+        sink.onTimerAdjusted();
+    }
+
+    /**
+     * Sets the stats that every session event is counted in, or null to count them in none.
+     */
+    void setStats(SessionStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Sets whether the timer sends a tick every second. See Timer.setTicking.
+     */
+    void setTicking(boolean ticking) {
+        timer.setTicking(ticking);
+    }
+
+    /**
+     * Brings the workout up to date with the clock, moving on if the stage has run out.
+     */
+    void update() {
+        timer.update();
+    }
+
+    /*
+     * Accessor methods
+     */
+
+    boolean isStarted() {
+        return started;
+    }
+
+    boolean isTimerRunning() {
+        return timerRunning;
+    }
+
+    Day getDay() {
+        return day;
+    }
+
+    Stage getStage() {
+        return stage;
+    }
+
+    long getRemainingTime() {
+        return timer.getRemainingTime();
+    }
+
+    /**
+     * Returns how far through the day the workout is, in milliseconds, counting every stage
+     * before the current one at its length.
+     */
+    long getElapsedTime() {
+        if (!started) {
+            return 0;
+        }
+        return day.getStageIndex().getStart(day.getStageNumber()) + timer.getDuration() - timer.getRemainingTime();
+    }
+
+    /**
+     * Returns the time left in the whole day, in milliseconds. Adjusting the time moves the
+     * workout through the day rather than changing the length of any stage, so the day's
+     * StageIndex never has to be worked out again, and this is as cheap as getElapsedTime.
+     */
+    long getDayRemainingTime() {
+        if (!started) {
+            return 0;
+        }
+        return day.getStageIndex().getLength() - getElapsedTime();
+    }
+
+    /**
+     * Returns a checkpoint of the running workout that resume can pick it back up from, or null
+     * if no workout is running. The checkpoint only changes when the state of the workout does,
+     * not as the timer ticks, so it needs to be taken again after each event but no more often.
+     */
+    Checkpoint getCheckpoint() {
+        if (!started) {
+            return null;
+        }
+        long now = clock.elapsedRealtime();
+        return new Checkpoint(day.getWeekNumber(), day.getDayNumber(), day.getStageNumber(), timerRunning,
+                timerRunning ? timer.getDeadline() : timer.getRemainingTime(), now, clock.currentTimeMillis() - now);
+    }
+
+    /**
+     * Returns the timer of the workout, for reading its progress. It should not be changed.
+     */
+    Timer getTimer() {
+        return timer;
+    }
+
+    /**
+     * Moves on to the next stage. If there are no more stages, ends the day and marks it complete.
+     */
+    private void increaseStage() {
+
+        // If the current stage is the last stage of the day, then finish the day.
+        if (day.getStageNumber() + 1 == day.numberOfStages()) {
+            finish();
+        } else {
+
+            // get the next stage
+            changeStage(day.getNext());
+        }
+    }
+
+    /**
+     * Moves the timer on to the given stage.
+     */
+    private void changeStage(Stage stage) {
+
+        // Reset the timer to the new stage
+        this.stage = stage;
+        timerRunning = true;
+        record(HistoryLog.EVENT_STAGE, day.getStageNumber());
+
+        // Moving on from a stage starts the next one where it ended, so the stages line up exactly
+        if (day.getStageNumber() > 0) {
+            timer.continueTo(stage.getLength());
+        } else {
+            timer.resetTo(stage.getLength());
+        }
+        sink.onStageChanged(stage, day.getStageNumber(), true);
+    }
+
+    /**
+     * Moves the workout to the given time through the day, finishing the day if the time is past
+     * its end. The timer keeps running or stays paused.
+     */
+    private void moveTo(long elapsed) {
+
+        StageIndex index = day.getStageIndex();
+        int target = index.stageAt(elapsed);
+        if (target == index.numberOfStages()) {
+            finish();
+            return;
+        }
+        long remaining = index.getEnd(target) - Math.max(0, elapsed);
+
+        if (target == day.getStageNumber()) {
+            timer.seekTo(stage.getLength(), remaining);
+            return;
+        }
+
+        boolean forward = target > day.getStageNumber();
+        stage = day.moveTo(target);
+        record(HistoryLog.EVENT_STAGE, target);
+        timer.seekTo(stage.getLength(), remaining);
+        sink.onStageChanged(stage, target, forward);
+    }
+
+    /**
+     * Ends the day and marks it complete.
+     */
+    private void finish() {
+
+        // Finishing the day marks it complete in the history
+        record(HistoryLog.EVENT_FINISH, 0);
+        sink.onWorkoutFinished();
+
+        // Stop the day
+        if (started) {
+            end();
+        }
+    }
+
+    /**
+     * Records a session event in the day's history, and counts it in the stats, with the state
+     * of the workout after it.
+     */
+    private void record(int type, int argument) {
+        day.record(type, argument);
+        if (stats != null) {
+            stats.record(type, stage, timerRunning, clock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Ends the running workout and stops the timer.
+     */
+    private void end() {
+        started = false;
+        timer.setRunning(false);
+        timerRunning = false;
+        sink.onWorkoutEnded();
+    }
+
+    @Override
+    public void onTimerRestart() {
+        // Minutes are added by moving back through the day, so the timer never goes over its stage
+    }
+
+    @Override
+    public void onTimerFinish() {
+        increaseStage();
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+        sink.onTimerTick(millisLeft);
+    }
+
+    @Override
+    public void onTimerAdjusted(long millisLeft) {
+        // The engine makes every adjustment itself, and sends onTimerAdjusted once it is done
+    }
+
+    @Override
+    public void onTimerPauseChanged(boolean running) {
+        // The engine pauses the timer itself, and sends onPauseChanged
+    }
+}
@@ -0,0 +1,172 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A workout killed at any point is picked back up from its checkpoint exactly where it would have
+ * got to, and a checkpoint from before a reboot is never used, however long the device has been
+ * up since.
+ */
+public class CheckpointTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    // The wall-clock time that the device first booted at
+    private static final long BOOT_TIME = 1500000000000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(1);
+    private Plan plan;
+    private HistoryLog history;
+
+    // Whether the engine finished the day, or ended it
+    private boolean finished, ended;
+
+    @Before
+    public void setUp() throws Exception {
+        plan = WorkoutFixture.plan(9);
+        history = WorkoutFixture.openHistory(folder);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void resumesExactlyAfterAKillAtARandomPoint() {
+        for (int run = 0; run < 200; run++) {
+            VirtualClock clock = new VirtualClock(BOOT_TIME);
+            Day day = new Day(1, 1, plan, history);
+            WorkoutEngine engine = new WorkoutEngine(clock, sink);
+            finished = false;
+            ended = false;
+            engine.start(day);
+
+            // Run to a random point of the day, pausing now and then
+            long until = random.nextInt((int) (day.getStageIndex().getLength() - SECOND));
+            while (clock.elapsedRealtime() < until && !ended) {
+                if (random.nextInt(10) == 0) {
+                    engine.togglePause();
+                }
+                clock.advance(1 + random.nextInt((int) (30 * SECOND)));
+            }
+            if (ended) {
+                continue;
+            }
+
+            // The process dies, and stays dead for a while
+            byte[] bytes = write(engine.getCheckpoint());
+            boolean running = engine.isTimerRunning();
+            long downtime = random.nextInt((int) (5 * MINUTE));
+            long expected = engine.getElapsedTime() + (running ? downtime : 0);
+            engine.getTimer().setRunning(false);
+            clock.advance(downtime);
+
+            Checkpoint checkpoint = Checkpoint.readFrom(ByteBuffer.wrap(bytes));
+            assertNotNull(checkpoint);
+            assertFalse(checkpoint.isStale(clock.elapsedRealtime(), clock.currentTimeMillis()));
+
+            Day resumedDay = new Day(checkpoint.getWeek(), checkpoint.getDay(), plan, history);
+            WorkoutEngine resumed = new WorkoutEngine(clock, sink);
+            resumed.resume(resumedDay, checkpoint);
+
+            if (expected >= resumedDay.getStageIndex().getLength()) {
+                assertTrue(finished);
+                assertFalse(resumed.isStarted());
+            } else {
+                assertFalse(finished);
+                assertEquals(expected, resumed.getElapsedTime());
+                assertEquals(running, resumed.isTimerRunning());
+                resumed.stop();
+            }
+        }
+    }
+
+    @Test
+    public void aRebootMakesTheCheckpointStale() {
+        VirtualClock clock = new VirtualClock(BOOT_TIME);
+        Day day = new Day(1, 1, plan, history);
+        WorkoutEngine engine = new WorkoutEngine(clock, sink);
+        clock.advance(2 * MINUTE);
+        engine.start(day);
+        clock.advance(5 * MINUTE);
+        Checkpoint checkpoint = Checkpoint.readFrom(ByteBuffer.wrap(write(engine.getCheckpoint())));
+        assertNotNull(checkpoint);
+
+        // The device restarts a minute later, and the clock starts again from 0
+        VirtualClock rebooted = new VirtualClock(BOOT_TIME + 8 * MINUTE);
+        assertTrue(checkpoint.isStale(rebooted.elapsedRealtime(), rebooted.currentTimeMillis()));
+
+        // Once the new boot has been up for longer than the old one had, the time alone can't tell
+        rebooted.advance(30 * MINUTE);
+        assertTrue(rebooted.elapsedRealtime() > checkpoint.getDeadline());
+        assertTrue(checkpoint.isStale(rebooted.elapsedRealtime(), rebooted.currentTimeMillis()));
+    }
+
+    @Test
+    public void aSmallCorrectionOfTheTimeKeepsTheCheckpoint() {
+        VirtualClock clock = new VirtualClock(BOOT_TIME);
+        Day day = new Day(1, 1, plan, history);
+        WorkoutEngine engine = new WorkoutEngine(clock, sink);
+        engine.start(day);
+        clock.advance(3 * MINUTE);
+        Checkpoint checkpoint = engine.getCheckpoint();
+        clock.advance(MINUTE);
+
+        // The wall-clock time is corrected by a couple of seconds each way, but setting it by an hour is a new boot
+        long now = clock.elapsedRealtime();
+        assertFalse(checkpoint.isStale(now, clock.currentTimeMillis() + 2 * SECOND));
+        assertFalse(checkpoint.isStale(now, clock.currentTimeMillis() - 2 * SECOND));
+        assertTrue(checkpoint.isStale(now, clock.currentTimeMillis() + 60 * MINUTE));
+    }
+
+    @Test
+    public void aDamagedCheckpointIsNotRead() {
+        VirtualClock clock = new VirtualClock(BOOT_TIME);
+        WorkoutEngine engine = new WorkoutEngine(clock, sink);
+        engine.start(new Day(1, 1, plan, history));
+        byte[] bytes = write(engine.getCheckpoint());
+
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] damaged = bytes.clone();
+            damaged[i] ^= 0x10;
+            assertNull("byte " + i, Checkpoint.readFrom(ByteBuffer.wrap(damaged)));
+        }
+        assertNull(Checkpoint.readFrom(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+    }
+
+    private static byte[] write(Checkpoint checkpoint) {
+        ByteBuffer bytes = ByteBuffer.allocate(Checkpoint.SIZE);
+        checkpoint.writeTo(bytes);
+        return bytes.array();
+    }
+
+    private final WorkoutEngine.EventSink sink = new WorkoutFixture.SimpleEventSink() {
+        @Override
+        public void onWorkoutFinished() {
+            finished = true;
+        }
+
+        @Override
+        public void onWorkoutEnded() {
+            ended = true;
+        }
+    };
+}
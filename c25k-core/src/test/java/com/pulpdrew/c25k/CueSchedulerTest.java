@@ -0,0 +1,263 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Each stage's cue is given CueScheduler.LEAD_MILLIS ahead of its boundary, even with the screen
+ * off. The workout runs on a clock that sleeps like a device does, holding its posts back, and is
+ * woken only by the stage alarm. The alarm and the cues are planned by a BoundaryPlanner, and the
+ * alarm is handled, as in WorkoutService.
+ */
+public class CueSchedulerTest implements WorkoutEngine.EventSink, CueScheduler.CueListener {
+
+    private static final long LEAD = CueScheduler.LEAD_MILLIS;
+
+    // How long the service keeps the device awake after the boundary an alarm woke it for
+    private static final long WAKE_MARGIN = 1000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SleepingClock clock = new SleepingClock();
+    private final WorkoutFixture.FakeAlarmClock alarmClock = new WorkoutFixture.FakeAlarmClock();
+    private final StageScheduler scheduler = new StageScheduler(alarmClock, LEAD);
+
+    private HistoryLog history;
+    private Day day;
+    private WorkoutEngine engine;
+    private BoundaryPlanner planner;
+    private boolean ended;
+
+    // How far ahead of its boundary each cue was given, and how many were given at the boundary instead
+    private final List<Long> leads = new ArrayList<>();
+    private int lateCues;
+
+    @Before
+    public void setUp() throws Exception {
+        history = WorkoutFixture.openHistory(folder);
+        day = new Day(1, 1, WorkoutFixture.plan(8), history);
+
+        engine = new WorkoutEngine(clock, this);
+        engine.setTicking(false);
+        planner = new BoundaryPlanner(engine, scheduler, new CueScheduler(clock, this));
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void cuesAreGivenAheadWithTheScreenOff() {
+
+        // The workout is started with the screen on, which is then turned off
+        clock.wakeFor(1000);
+        engine.start(day);
+        while (!ended) {
+            assertTrue(alarmClock.isSet());
+            long triggerAt = alarmClock.triggerAt;
+            clock.advanceTo(triggerAt);
+            onAlarm();
+            clock.advanceTo(triggerAt + LEAD + WAKE_MARGIN);
+        }
+
+        // Only the first stage's cue, given as the workout starts, isn't ahead of its boundary
+        assertEquals(1, lateCues);
+        assertEquals(day.numberOfStages() + 1, leads.size());
+        for (int i = 1; i < leads.size(); i++) {
+            assertEquals("cue " + i, Long.valueOf(LEAD), leads.get(i));
+        }
+        assertEquals(day.numberOfStages(), alarmClock.fired);
+    }
+
+    @Test
+    public void cuesAreGivenOnceWithTheScreenOn() {
+        clock.wakeFor(Long.MAX_VALUE / 2);
+        engine.start(day);
+        while (!ended) {
+            assertTrue(alarmClock.isSet());
+            long triggerAt = alarmClock.triggerAt;
+            clock.advanceTo(triggerAt);
+            onAlarm();
+            clock.advanceTo(triggerAt + LEAD + WAKE_MARGIN);
+        }
+
+        // The cue's own post and the alarm land together, and only one of them gives the cue
+        assertEquals(1, lateCues);
+        assertEquals(day.numberOfStages() + 1, leads.size());
+        for (int i = 1; i < leads.size(); i++) {
+            assertEquals("cue " + i, Long.valueOf(LEAD), leads.get(i));
+        }
+    }
+
+    @Test
+    public void aCueSleptThroughIsGivenAtTheBoundary() {
+        clock.wakeFor(1000);
+        engine.start(day);
+
+        // The first alarm comes a second late, after the boundary it was for
+        long boundary = alarmClock.triggerAt + LEAD;
+        clock.advanceTo(boundary + 1000);
+        onAlarm();
+
+        assertEquals(1, day.getStageNumber());
+        assertEquals(2, lateCues);
+        assertEquals(2, leads.size());
+        assertEquals(Long.valueOf(0), leads.get(1));
+        assertFalse(ended);
+        assertTrue(alarmClock.isSet());
+    }
+
+    /**
+     * Handles the alarm as WorkoutService.onStartCommand does, staying awake until just after the
+     * boundary and planning the cue again.
+     */
+    private void onAlarm() {
+        alarmClock.fire();
+        clock.wakeFor(LEAD + WAKE_MARGIN);
+        planner.onAlarm();
+    }
+
+    @Override
+    public void onCue(Stage next, long boundary) {
+        leads.add(boundary - clock.elapsedRealtime());
+    }
+
+    /*
+     * Passes the engine's events to the planner as WorkoutService does
+     */
+
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        if (planner.onStageChanged(stage, stageNumber, forward)) {
+            lateCues++;
+        }
+    }
+
+    @Override
+    public void onPauseChanged(boolean running) {
+        planner.plan();
+    }
+
+    @Override
+    public void onTimerAdjusted() {
+        planner.plan();
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+    }
+
+    @Override
+    public void onWorkoutFinished() {
+        if (planner.onWorkoutFinished()) {
+            lateCues++;
+        }
+    }
+
+    @Override
+    public void onWorkoutEnded() {
+        planner.cancel();
+        ended = true;
+    }
+
+    /**
+     * Clock that runs its posts the way a Handler does on a device that sleeps. Posts are timed
+     * on the uptime of the device, which stops while it sleeps, so a post made before the device
+     * went to sleep runs late by however long it slept. The device is asleep except while it
+     * has been woken.
+     */
+    private static class SleepingClock implements Clock {
+
+        private long now, uptime;
+        private long awakeUntil;
+
+        private final List<Runnable> posted = new ArrayList<>();
+        private final List<Long> postedAt = new ArrayList<>();
+
+        @Override
+        public long elapsedRealtime() {
+            return now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            posted.add(runnable);
+            postedAt.add(uptime + delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            for (int i = posted.size() - 1; i >= 0; i--) {
+                if (posted.get(i) == runnable) {
+                    posted.remove(i);
+                    postedAt.remove(i);
+                }
+            }
+        }
+
+        /**
+         * Keeps the device awake for at least the given time from now.
+         */
+        void wakeFor(long millis) {
+            awakeUntil = Math.max(awakeUntil, now + millis);
+        }
+
+        /**
+         * Moves the clock forward, running the posts that fall due while the device is awake.
+         */
+        void advanceTo(long time) {
+            while (true) {
+                long awakeEnd = Math.min(time, awakeUntil);
+                int next = earliest();
+                if (next >= 0 && now <= awakeEnd) {
+                    long dueAt = now + Math.max(0, postedAt.get(next) - uptime);
+                    if (dueAt <= awakeEnd) {
+                        uptime += dueAt - now;
+                        now = dueAt;
+
+                        // Take the post off before running it, as it may post or remove others
+                        Runnable runnable = posted.remove(next);
+                        postedAt.remove(next);
+                        runnable.run();
+                        continue;
+                    }
+                }
+
+                // Nothing else is due while awake, so stay awake as long as that lasts and then sleep
+                if (awakeEnd > now) {
+                    uptime += awakeEnd - now;
+                    now = awakeEnd;
+                }
+                now = Math.max(now, time);
+                return;
+            }
+        }
+
+        private int earliest() {
+            int earliest = -1;
+            for (int i = 0; i < posted.size(); i++) {
+                if (earliest < 0 || postedAt.get(i) < postedAt.get(earliest)) {
+                    earliest = i;
+                }
+            }
+            return earliest;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The time through the day and the time left in it are worked out in constant time, so a tick of
+ * a day of ten thousand stages costs what a tick of a day of ten does. Each tick works them out
+ * both as the engine does and as MainActivity does, from the end of the current stage.
+ */
+public class DayTimeTest {
+
+    private static final long SECOND = 1000;
+    private static final int TICKS = 20000;
+    private static final int RUNS = 7;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private HistoryLog history;
+
+    @Before
+    public void setUp() throws Exception {
+        history = WorkoutFixture.openHistory(folder);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void theDayTimeIsRightOnEveryTick() {
+        DayTicker ticker = new DayTicker(longStages(1000), history);
+        StageIndex index = ticker.day.getStageIndex();
+        for (int i = 1; i <= TICKS; i++) {
+            ticker.clock.advance(SECOND);
+            assertEquals(i * SECOND, ticker.engine.getElapsedTime());
+            assertEquals(index.getLength() - i * SECOND, ticker.engine.getDayRemainingTime());
+            assertEquals(i * SECOND, ticker.shownElapsed);
+            assertEquals(index.getLength() - i * SECOND, ticker.shownRemaining);
+        }
+    }
+
+    @Test
+    public void aTickCostsTheSameForAnyNumberOfStages() {
+        DayTicker small = new DayTicker(longStages(10), history);
+        DayTicker large = new DayTicker(longStages(10000), history);
+
+        // Warm up, so that both are measured compiled
+        small.time(TICKS);
+        large.time(TICKS);
+
+        // Take the fastest of several runs, which is the least disturbed by anything else running
+        long smallNanos = Long.MAX_VALUE, largeNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            smallNanos = Math.min(smallNanos, small.time(TICKS));
+            largeNanos = Math.min(largeNanos, large.time(TICKS));
+        }
+
+        // Walking the stages would make the larger day a thousand times slower, so a small
+        // multiple is only ever noise
+        assertTrue("10 stages: " + smallNanos + "ns, 10000 stages: " + largeNanos + "ns",
+                largeNanos < 3 * smallNanos + TICKS * 100L);
+    }
+
+    /**
+     * Returns a day of the given number of stages, each as long as a stage can be, so that
+     * moving between them is rare next to the ticks.
+     */
+    private static Plan longStages(int numberOfStages) {
+        short[] stages = new short[numberOfStages];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = Stage.pack(i % 2 == 0 ? Stage.StageType.RUN : Stage.StageType.WALK, Stage.LENGTH_MASK);
+        }
+        return WorkoutFixture.plan(stages);
+    }
+
+    /**
+     * A workout on a virtual clock, working out the day's time on each tick.
+     */
+    private static class DayTicker extends WorkoutFixture.SimpleEventSink {
+
+        final VirtualClock clock = new VirtualClock();
+        final Day day;
+        final WorkoutEngine engine;
+
+        // The end of the current stage, kept on each stage change, and the day's time shown from it, as in MainActivity
+        private long stageEnd;
+        long shownElapsed, shownRemaining;
+        private long sum;
+
+        DayTicker(Plan plan, HistoryLog history) {
+            day = new Day(1, 1, plan, history);
+            engine = new WorkoutEngine(clock, this);
+            engine.start(day);
+        }
+
+        /**
+         * Runs the given number of ticks, returning how long they took in nanoseconds.
+         */
+        long time(int ticks) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                clock.advance(SECOND);
+                sum += engine.getElapsedTime() + engine.getDayRemainingTime();
+            }
+            long nanos = System.nanoTime() - start;
+            assertTrue(sum > 0);
+            return nanos;
+        }
+
+        @Override
+        public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+            stageEnd = day.getStageIndex().getEnd(stageNumber);
+            show(engine.getRemainingTime());
+        }
+
+        @Override
+        public void onTimerTick(long millisLeft) {
+            show(millisLeft);
+        }
+
+        private void show(long millisLeft) {
+            shownElapsed = stageEnd - millisLeft;
+            shownRemaining = day.getStageIndex().getLength() - shownElapsed;
+        }
+
+        @Override
+        public void onWorkoutEnded() {
+
+            // Run the day again, so the ticks never run out
+            engine.start(day);
+        }
+    }
+}
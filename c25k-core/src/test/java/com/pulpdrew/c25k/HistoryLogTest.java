@@ -0,0 +1,211 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The history log keeps every completion through a process dying part way through a write, a
+ * damaged record in the middle of the file, and compaction, and is only compacted when that
+ * shrinks it.
+ */
+public class HistoryLogTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private long time;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "history.log");
+    }
+
+    @Test
+    public void aTornTailIsDropped() throws IOException {
+        HistoryLog log = open();
+        session(log, 1, 1, true);
+        session(log, 1, 2, false);
+        log.close();
+        long length = file.length();
+
+        // The process dies part way through writing a batch: one whole record of garbage and half of another
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22});
+        }
+
+        log = open();
+        assertTrue(log.isComplete(1, 1));
+        assertFalse(log.isComplete(1, 2));
+        assertEquals(length, file.length());
+
+        // What is appended afterwards follows on from the last good record
+        session(log, 1, 3, true);
+        log.close();
+        log = open();
+        assertTrue(log.isComplete(1, 1));
+        assertTrue(log.isComplete(1, 3));
+        log.close();
+    }
+
+    @Test
+    public void aCorruptRecordInTheMiddleIsSkipped() throws IOException {
+        HistoryLog log = open();
+        session(log, 1, 1, true);
+        session(log, 1, 2, false);
+        session(log, 1, 3, true);
+        log.close();
+        long length = file.length();
+
+        // Damage a pause in the middle of the second session, so its checksum no longer matches
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long record = 8 * HistoryLog.RECORD_SIZE;
+            out.seek(record + 8);
+            assertEquals(HistoryLog.EVENT_PAUSE, out.read());
+            out.seek(record + 3);
+            out.write(0x55);
+        }
+
+        // The sessions on both sides of it are still read, and nothing is cut off
+        log = open();
+        assertTrue(log.isComplete(1, 1));
+        assertFalse(log.isComplete(1, 2));
+        assertTrue(log.isComplete(1, 3));
+        log.close();
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void completionSurvivesCompaction() throws IOException {
+        HistoryLog log = open();
+        for (int week = 1; week <= 9; week++) {
+            for (int day = 1; day <= 3; day++) {
+                session(log, week, day, (week + day) % 3 != 0);
+            }
+        }
+
+        // Mark some days by hand, including a finished day marked incomplete and then complete again
+        log.append(time++, HistoryLog.EVENT_MARK_INCOMPLETE, 1, 1, 0);
+        log.append(time++, HistoryLog.EVENT_MARK_COMPLETE, 1, 2, 0);
+        log.append(time++, HistoryLog.EVENT_MARK_INCOMPLETE, 2, 2, 0);
+        log.append(time++, HistoryLog.EVENT_MARK_COMPLETE, 2, 2, 0);
+        log.append(time++, HistoryLog.EVENT_MARK_INCOMPLETE, 3, 2, 0);
+        boolean[][] expected = completion(log);
+        log.close();
+        long length = file.length();
+
+        // The log is too small to be compacted when it is opened, so compact it by hand
+        log = open();
+        assertEquals(length, file.length());
+        log.compact();
+        log.close();
+        assertTrue(file.length() < length);
+
+        log = open();
+        assertArrayEquals(expected, completion(log));
+        assertFalse(log.isComplete(1, 1));
+        assertTrue(log.isComplete(1, 2));
+        assertTrue(log.isComplete(2, 2));
+        assertFalse(log.isComplete(3, 2));
+        log.close();
+    }
+
+    @Test
+    public void aLogOfFinishedSessionsIsNotCompactedOnEveryOpen() throws IOException {
+
+        // Enough finished sessions to go past the threshold, which compacting couldn't shrink
+        HistoryLog log = open();
+        for (int i = 0; i < 2500; i++) {
+            log.append(time++, HistoryLog.EVENT_START, 1 + i % 9, 1 + i % 3, 0);
+            log.append(time++, HistoryLog.EVENT_FINISH, 1 + i % 9, 1 + i % 3, 0);
+        }
+        log.close();
+        long length = file.length();
+        assertTrue(length > 64 * 1024);
+
+        // A compaction would rewrite the marks with new times, so the file would change
+        byte[] before = read();
+        for (int i = 0; i < 3; i++) {
+            open().close();
+            assertEquals(length, file.length());
+        }
+        assertArrayEquals(before, read());
+    }
+
+    @Test
+    public void aLogOfLongSessionsIsCompactedOnceWhenOpened() throws IOException {
+        HistoryLog log = open();
+        for (int i = 0; i < 200; i++) {
+            session(log, 1 + i % 9, 1 + i % 3, i % 4 != 0);
+            for (int j = 0; j < 20; j++) {
+                log.append(time++, HistoryLog.EVENT_STAGE, 1 + i % 9, 1 + i % 3, j);
+            }
+        }
+        boolean[][] expected = completion(log);
+        log.close();
+        long length = file.length();
+        assertTrue(length > 64 * 1024);
+
+        log = open();
+        log.close();
+        long compacted = file.length();
+        assertTrue(compacted < length / 2);
+
+        // Opening it again leaves it as it is
+        log = open();
+        log.close();
+        assertEquals(compacted, file.length());
+        log = open();
+        assertArrayEquals(expected, completion(log));
+        log.close();
+    }
+
+    private HistoryLog open() {
+        HistoryLog log = new HistoryLog(file);
+        log.open();
+        return log;
+    }
+
+    /**
+     * Appends a session of the given day, finished or stopped part way.
+     */
+    private void session(HistoryLog log, int week, int day, boolean finished) {
+        log.append(time++, HistoryLog.EVENT_START, week, day, 0);
+        log.append(time++, HistoryLog.EVENT_STAGE, week, day, 0);
+        log.append(time++, HistoryLog.EVENT_PAUSE, week, day, 0);
+        log.append(time++, HistoryLog.EVENT_RESUME, week, day, 0);
+        log.append(time++, HistoryLog.EVENT_STAGE, week, day, 1);
+        log.append(time++, finished ? HistoryLog.EVENT_FINISH : HistoryLog.EVENT_STOP, week, day, 0);
+        log.flush();
+    }
+
+    private static boolean[][] completion(HistoryLog log) {
+        boolean[][] complete = new boolean[10][4];
+        for (int week = 1; week < complete.length; week++) {
+            for (int day = 1; day < complete[week].length; day++) {
+                complete[week][day] = log.isComplete(week, day);
+            }
+        }
+        return complete;
+    }
+
+    private byte[] read() throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.readFully(bytes);
+        }
+        return bytes;
+    }
+}
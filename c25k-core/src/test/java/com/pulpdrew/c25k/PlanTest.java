@@ -0,0 +1,187 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * The plan is read once, opening each day file once, and every Day after that is a cursor over
+ * it that reads nothing. A day the plan doesn't have, or that can't be read, is an empty day,
+ * and a stage too long to pack is rejected rather than cut short.
+ */
+public class PlanTest {
+
+    private final Map<String, String> files = new LinkedHashMap<>();
+    private final Map<String, Integer> opens = new HashMap<>();
+    private int totalOpens;
+
+    private final TextPlanReader.Source source = new TextPlanReader.Source() {
+        @Override
+        public String[] list() {
+            return files.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public InputStream open(String filename) throws FileNotFoundException {
+            String contents = files.get(filename);
+            if (contents == null) {
+                throw new FileNotFoundException(filename);
+            }
+            Integer count = opens.get(filename);
+            opens.put(filename, count == null ? 1 : count + 1);
+            totalOpens++;
+            return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    @Before
+    public void setUp() {
+        files.put("2_1.c25k", "Week 2\nWARMUP 300\nRUN 90\nWALK 120\nCOOLDOWN 300\n");
+        files.put("1_2.c25k", "Week 1 again\nWARMUP 300\nRUN 60\nWALK 90\nRUN 60\nCOOLDOWN 300\n");
+        files.put("1_1.c25k", "Week 1\nWARMUP 300\nRUN 60\nWALK 90\nCOOLDOWN 300\n");
+        files.put("notes.txt", "Not a day\n");
+    }
+
+    @Test
+    public void readingThePlanOpensEachDayFileOnce() throws Exception {
+        Plan plan = TextPlanReader.readPlan(source);
+
+        assertEquals(3, plan.numberOfDays());
+        assertEquals(3, totalOpens);
+        for (String filename : new String[]{"1_1.c25k", "1_2.c25k", "2_1.c25k"}) {
+            assertEquals(filename, Integer.valueOf(1), opens.get(filename));
+        }
+
+        // Sorted by week and then by day, whatever order the files were listed in
+        assertEquals(0, plan.indexOf(1, 1));
+        assertEquals(1, plan.indexOf(1, 2));
+        assertEquals(2, plan.indexOf(2, 1));
+        assertEquals("Week 1 again", plan.getDescription(1));
+    }
+
+    @Test
+    public void switchingDaysOpensNothing() throws Exception {
+        Plan plan = TextPlanReader.readPlan(source);
+        int opensAfterReading = totalOpens;
+
+        // Switch back and forth between the days the way the spinners do, walking each one
+        for (int i = 0; i < 100; i++) {
+            for (int index = 0; index < plan.numberOfDays(); index++) {
+                Day day = new Day(plan.getWeek(index), plan.getDay(index), plan, null);
+                for (int stage = 0; stage < day.numberOfStages(); stage++) {
+                    day.getNext();
+                }
+            }
+        }
+
+        assertEquals(opensAfterReading, totalOpens);
+    }
+
+    @Test
+    public void daysShareTheirStages() throws Exception {
+        Plan plan = TextPlanReader.readPlan(source);
+
+        Day first = new Day(1, 1, plan, null);
+        Day second = new Day(1, 2, plan, null);
+        Day again = new Day(1, 1, plan, null);
+
+        // Both days warm up for 300 seconds, and the same day made twice is the same stages
+        assertSame(first.getStage(0), second.getStage(0));
+        for (int stage = 0; stage < first.numberOfStages(); stage++) {
+            assertSame(first.getStage(stage), again.getStage(stage));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void aStageTooLongToPackIsRejected() throws Exception {
+        files.put("1_3.c25k", "Week 1 too long\nWARMUP 300\nRUN " + (Stage.LENGTH_MASK + 1) + "\nCOOLDOWN 300\n");
+        TextPlanReader.readPlan(source);
+    }
+
+    @Test
+    public void packingKeepsEveryLengthItHasRoomFor() {
+        assertEquals(0, Stage.lengthOf(Stage.pack(Stage.StageType.RUN, 0)));
+        assertEquals(Stage.LENGTH_MASK, Stage.lengthOf(Stage.pack(Stage.StageType.WALK, Stage.LENGTH_MASK)));
+        assertEquals(Stage.StageType.WALK, Stage.typeOf(Stage.pack(Stage.StageType.WALK, Stage.LENGTH_MASK)));
+        for (int length : new int[]{-1, Stage.LENGTH_MASK + 1, Integer.MAX_VALUE}) {
+            try {
+                Stage.pack(Stage.StageType.RUN, length);
+                fail("Packed a stage of " + length + "s");
+            } catch (IllegalArgumentException expected) {
+                // The length would have been cut down to another
+            }
+        }
+    }
+
+    @Test
+    public void aDayThePlanLacksHasNoStages() throws Exception {
+        Plan plan = TextPlanReader.readPlan(source);
+
+        assertEmpty(new Day(3, 1, plan, null));
+        assertEmpty(new Day(1, 3, plan, null));
+        assertEmpty(new Day(1, 1, Plan.NO_DAYS, null));
+    }
+
+    @Test
+    public void aDayThatCantBeReadHasNoStages() throws Exception {
+        final Plan plan = TextPlanReader.readPlan(source);
+
+        // A program whose days are all lost, as when a program file is damaged after it was opened
+        Program unreadable = new Program() {
+            @Override
+            public int indexOf(int week, int day) {
+                return plan.indexOf(week, day);
+            }
+
+            @Override
+            public int numberOfDays() {
+                return plan.numberOfDays();
+            }
+
+            @Override
+            public int getWeek(int index) {
+                return plan.getWeek(index);
+            }
+
+            @Override
+            public int getDay(int index) {
+                return plan.getDay(index);
+            }
+
+            @Override
+            public Plan getPlanOf(int index) throws IOException {
+                throw new IOException("damaged");
+            }
+        };
+
+        Day day = Day.read(unreadable, 1, 1, null);
+        assertEquals(1, day.getWeekNumber());
+        assertEquals(1, day.getDayNumber());
+        assertEmpty(day);
+
+        // The same program read properly has the day
+        assertEquals(4, Day.read(plan, 1, 1, null).numberOfStages());
+        assertEmpty(Day.read(plan, 5, 1, null));
+    }
+
+    private static void assertEmpty(Day day) {
+        assertEquals(0, day.numberOfStages());
+        assertEquals(0, day.getStageIndex().getLength());
+        assertEquals(0, day.getRunSeconds());
+        assertEquals(0, day.getWalkSeconds());
+        assertNull(day.getDescription());
+    }
+}
@@ -0,0 +1,135 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A program file reads each day the same as the day files it was made from are read by
+ * TextPlanReader, and one that is truncated, corrupt or has numbers too long for the plan is
+ * rejected rather than read wrong.
+ */
+public class ProgramFileTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Days of every stage type, each as "[week] [day]", its description and its stages
+    private static final String[][] DAYS = {
+            {"1 1", "Alternate 60 seconds of jogging and 90 seconds of walking.",
+                    "WARMUP 300", "RUN 60", "WALK 90", "RUN 60", "WALK 90", "COOLDOWN 300"},
+            {"1 2", "Jog for as long as a stage can be.", "WARMUP 300", "RUN " + Stage.LENGTH_MASK, "COOLDOWN 0"},
+            {"2 1", "Walk.", "WALK 1"},
+            {"12 3", "Run 30 minutes.", "WARMUP 300", "RUN 1800", "COOLDOWN 300"},
+            {"255 255", "The last day there can be.", "RUN 20", "WALK 10"},
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEveryDayAsTheDayFilesAreRead() throws IOException {
+        File directory = folder.newFolder("days");
+        StringBuilder program = new StringBuilder("Test Program\n");
+        for (String[] day : DAYS) {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 1; i < day.length; i++) {
+                lines.append(day[i]).append('\n');
+            }
+            write(new File(directory, day[0].replace(' ', '_') + TextPlanReader.EXTENSION), lines.toString());
+            program.append("DAY ").append(day[0]).append(' ').append(lines);
+        }
+
+        Plan expected = TextPlanReader.readPlan(directory);
+        ProgramFile file = ProgramFile.open(write(program.toString()));
+
+        assertEquals("Test Program", file.getName());
+        assertEquals(expected.numberOfDays(), file.numberOfDays());
+        for (int i = 0; i < expected.numberOfDays(); i++) {
+            assertEquals(i, file.indexOf(expected.getWeek(i), expected.getDay(i)));
+            Plan day = file.getPlanOf(i);
+            assertEquals(1, day.numberOfDays());
+            assertEquals(expected.getWeek(i), day.getWeek(0));
+            assertEquals(expected.getDay(i), day.getDay(0));
+            assertEquals(expected.getDescription(i), day.getDescription(0));
+            assertArrayEquals(expected.getStages(i), day.getStages(0));
+        }
+        assertEquals(-1, file.indexOf(1, 3));
+    }
+
+    @Test
+    public void rejectsADayLineCutShort() throws IOException {
+        assertNotOpened("Program\nDAY 1 1 Run.\nRUN 60\nDAY 2");
+        assertNotOpened("Program\nDAY 1 1 Run.\nRUN 60\nDAY ");
+    }
+
+    @Test
+    public void rejectsAStageCutShort() throws IOException {
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN 60\nWALK ");
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN 60\nWALK");
+    }
+
+    @Test
+    public void rejectsCorruptDays() throws IOException {
+        assertNotOpened("Program\nDAY 2 1 Run.\nRUN 60\nDAY 1 1 Run.\nRUN 60\n");
+        assertNotOpened("Program\nDAY 1 1 Run.\nDAY 1 1 Run again.\n");
+        assertNotOpened("Program\nDAY 0 1 Run.\nRUN 60\n");
+        assertNotOpened("Program\nDAY one 1 Run.\nRUN 60\n");
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN sixty\n");
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN -60\n");
+    }
+
+    @Test
+    public void rejectsNumbersTooLongForThePlan() throws IOException {
+        assertNotOpened("Program\nDAY 256 1 Run.\nRUN 60\n");
+        assertNotOpened("Program\nDAY 1 99999999999 Run.\nRUN 60\n");
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN " + (Stage.LENGTH_MASK + 1) + "\n");
+        assertDayNotRead("Program\nDAY 1 1 Run.\nRUN 99999999999\n");
+    }
+
+    /**
+     * Checks that a program file with the given contents can't be opened.
+     */
+    private void assertNotOpened(String contents) throws IOException {
+        File file = write(contents);
+        try {
+            ProgramFile.open(file);
+            fail("Opened " + contents);
+        } catch (IOException expected) {
+            // The program file is rejected
+        }
+    }
+
+    /**
+     * Checks that a program file with the given contents opens, but its first day can't be read.
+     */
+    private void assertDayNotRead(String contents) throws IOException {
+        ProgramFile file = ProgramFile.open(write(contents));
+        try {
+            file.getPlanOf(0);
+            fail("Read " + contents);
+        } catch (IOException expected) {
+            // The day is rejected
+        }
+    }
+
+    private File write(String contents) throws IOException {
+        return write(folder.newFile(), contents);
+    }
+
+    private static File write(File file, String contents) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(contents.getBytes(UTF_8));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * A read of a record file gets the newest record saved before it, however many are still waiting
+ * to be written, and closing the file writes the ones that are.
+ */
+public class RecordFileTest {
+
+    private static final int SIZE = 16;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private RecordFile records;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "record");
+        records = new RecordFile(file, SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        records.close();
+    }
+
+    @Test
+    public void aReadGetsTheNewestRecordSaved() {
+        for (int i = 0; i < 1000; i++) {
+            records.save(record(i));
+            if (i % 100 == 0) {
+                assertArrayEquals(record(i), records.read());
+            }
+        }
+        assertArrayEquals(record(999), records.read());
+    }
+
+    @Test
+    public void aClearedFileHasNoRecord() {
+        assertNull(records.read());
+        records.save(record(1));
+        records.clear();
+        assertNull(records.read());
+    }
+
+    @Test
+    public void closingWritesTheRecordsWaiting() {
+        records.save(record(1));
+        records.save(record(2));
+        records.close();
+
+        RecordFile reopened = new RecordFile(file, SIZE);
+        assertArrayEquals(record(2), reopened.read());
+        reopened.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aRecordOfTheWrongSizeIsRejected() {
+        records.save(new byte[SIZE + 1]);
+    }
+
+    private static byte[] record(int value) {
+        byte[] record = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            record[i] = (byte) (value + i);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * However many years of sessions the stats hold, their snapshot is the same 140 bytes and reads
+ * back the same, and recording an event costs what it does in empty stats.
+ */
+public class SessionStatsTest {
+
+    // Monday 1 January 2018, in milliseconds since the epoch
+    private static final long START = 1514764800000L;
+
+    private static final int SESSIONS = 500;
+    private static final int RUNS = 7;
+
+    private final Plan plan = WorkoutFixture.plan(17);
+
+    @Test
+    public void theSnapshotIsTheSameSizeForAnyLengthOfHistory() {
+        for (int years : new int[]{0, 1, 10}) {
+            SessionStats stats = new SessionStats();
+            new SyntheticSessions(plan, 1, START).generate(stats, years);
+
+            // Written into a larger buffer, so that writing more than the snapshot would show
+            ByteBuffer snapshot = ByteBuffer.allocate(2 * SessionStats.SIZE);
+            stats.writeTo(snapshot);
+            assertEquals(years + " years", SessionStats.SIZE, snapshot.position());
+
+            snapshot.flip();
+            SessionStats read = SessionStats.readFrom(snapshot);
+            assertNotNull(read);
+            assertEquals(stats.numberOfSessions(), read.numberOfSessions());
+            assertEquals(stats.numberOfFinished(), read.numberOfFinished());
+            assertEquals(stats.numberOfPauses(), read.numberOfPauses());
+            assertEquals(stats.getStageMillis(Stage.StageType.RUN), read.getStageMillis(Stage.StageType.RUN));
+            assertEquals(stats.getLongestStreak(), read.getLongestStreak());
+        }
+    }
+
+    @Test
+    public void recordingCostsTheSameAfterTenYears() {
+        SessionStats old = new SessionStats();
+        SyntheticSessions oldSessions = new SyntheticSessions(plan, 2, START);
+        oldSessions.generate(old, 10);
+        assertTrue(old.numberOfSessions() > 1000);
+
+        // Warm up, so that both are measured compiled
+        timeNew();
+        time(old, oldSessions);
+
+        // Take the fastest of several runs, which is the least disturbed by anything else running
+        double newNanos = Double.MAX_VALUE, oldNanos = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            newNanos = Math.min(newNanos, timeNew());
+            oldNanos = Math.min(oldNanos, time(old, oldSessions));
+        }
+
+        // Anything that walked the history would make ten years of it hundreds of times slower
+        assertTrue("new: " + newNanos + "ns an event, ten years: " + oldNanos + "ns an event",
+                oldNanos < 3 * newNanos + 100);
+    }
+
+    /**
+     * Records sessions in new stats, returning how long each event took in nanoseconds.
+     */
+    private double timeNew() {
+        return time(new SessionStats(), new SyntheticSessions(plan, 1, START));
+    }
+
+    /**
+     * Records the next sessions in the stats, returning how long each event took in nanoseconds.
+     */
+    private static double time(SessionStats stats, SyntheticSessions sessions) {
+        long start = System.nanoTime();
+        int events = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            events += sessions.nextSession(stats);
+        }
+        return (double) (System.nanoTime() - start) / events;
+    }
+}
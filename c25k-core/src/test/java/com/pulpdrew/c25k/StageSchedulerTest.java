@@ -0,0 +1,167 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A StageScheduler keeps one alarm set for just before the next stage boundary of a workout,
+ * set again as each stage starts. The workout is run on a VirtualClock with a BoundaryPlanner
+ * planning the alarm as in WorkoutService, against an alarm clock that fires when the clock
+ * reaches its alarm.
+ */
+public class StageSchedulerTest implements WorkoutEngine.EventSink {
+
+    private static final long SECOND = 1000;
+    private static final long LEAD = CueScheduler.LEAD_MILLIS;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final VirtualClock clock = new VirtualClock();
+    private final WorkoutFixture.FakeAlarmClock alarmClock = new WorkoutFixture.FakeAlarmClock();
+    private final StageScheduler scheduler = new StageScheduler(alarmClock, LEAD);
+
+    private HistoryLog history;
+    private Day day;
+    private WorkoutEngine engine;
+    private BoundaryPlanner planner;
+    private boolean ended;
+
+    @Before
+    public void setUp() throws Exception {
+        history = WorkoutFixture.openHistory(folder);
+        day = new Day(1, 1, WorkoutFixture.plan(10), history);
+
+        // The service only ticks while the app is open, so with it closed the alarm is all there is
+        engine = new WorkoutEngine(clock, this);
+        engine.setTicking(false);
+        planner = new BoundaryPlanner(engine, scheduler, new CueScheduler(clock, new CueScheduler.CueListener() {
+            @Override
+            public void onCue(Stage next, long boundary) {
+            }
+        }));
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void aWorkoutSetsOneAlarmForEachStage() {
+        engine.start(day);
+        StageIndex index = day.getStageIndex();
+        while (!ended) {
+            assertTrue(alarmClock.isSet());
+            int stage = day.getStageNumber();
+            long alarm = alarmClock.triggerAt;
+
+            // Each alarm is for just ahead of the end of the stage, on the dot
+            assertEquals(index.getEnd(stage) - LEAD, alarm);
+            runToAlarm();
+            assertEquals(index.getEnd(stage), clock.elapsedRealtime());
+        }
+
+        assertEquals(day.numberOfStages(), alarmClock.sets);
+        assertEquals(day.numberOfStages(), alarmClock.fired);
+        assertFalse(alarmClock.isSet());
+    }
+
+    @Test
+    public void pausingAndAdjustingReplaceTheOneAlarm() {
+        Random random = new Random(1);
+        engine.start(day);
+        int inputs = 0;
+        while (!ended) {
+            int setsBefore = alarmClock.sets;
+            double choice = random.nextDouble();
+            if (choice < 0.4) {
+                engine.togglePause();
+            } else if (choice < 0.6) {
+                engine.addMinute();
+            } else if (choice < 0.7) {
+                engine.subtractMinute();
+            }
+            inputs++;
+            if (ended) {
+                break;
+            }
+
+            // An input only ever replaces the one alarm, however many stages are left. Moving to
+            // another stage by a minute sets it for the change of stage and for the adjustment.
+            assertTrue(alarmClock.sets - setsBefore <= 2);
+            if (engine.isTimerRunning()) {
+                assertTrue(alarmClock.isSet());
+                assertEquals(engine.getTimer().getDeadline() - LEAD, alarmClock.triggerAt);
+            } else {
+                assertFalse(alarmClock.isSet());
+            }
+
+            // Go on for a while, through a stage boundary now and then
+            long until = clock.elapsedRealtime() + random.nextInt((int) (90 * SECOND));
+            while (!ended && alarmClock.isSet() && alarmClock.triggerAt <= until) {
+                runToAlarm();
+            }
+            clock.advanceTo(until);
+        }
+
+        assertTrue(inputs > day.numberOfStages());
+        assertTrue(alarmClock.sets <= day.numberOfStages() + 2 * inputs);
+        assertFalse(alarmClock.isSet());
+    }
+
+    /**
+     * Moves the clock to the alarm and fires it, as the service is woken by it, and then on to
+     * the boundary it was for.
+     */
+    private void runToAlarm() {
+        long triggerAt = alarmClock.triggerAt;
+        alarmClock.fire();
+        clock.advanceTo(triggerAt);
+        planner.onAlarm();
+        clock.advanceTo(triggerAt + LEAD);
+    }
+
+    /*
+     * Passes the engine's events to the planner as WorkoutService does
+     */
+
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        planner.onStageChanged(stage, stageNumber, forward);
+    }
+
+    @Override
+    public void onPauseChanged(boolean running) {
+        planner.plan();
+    }
+
+    @Override
+    public void onTimerAdjusted() {
+        planner.plan();
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+    }
+
+    @Override
+    public void onWorkoutFinished() {
+        planner.onWorkoutFinished();
+    }
+
+    @Override
+    public void onWorkoutEnded() {
+        planner.cancel();
+        ended = true;
+    }
+}
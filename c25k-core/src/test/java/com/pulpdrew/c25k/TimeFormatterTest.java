@@ -0,0 +1,61 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The timer text is formatted into a reusable buffer, only when the shown second changes, and
+ * reads back as a CharSequence over that buffer.
+ */
+public class TimeFormatterTest {
+
+    private static final long SECOND = 1000;
+
+    @Test
+    public void formatsMinutesAndSeconds() {
+        TimeFormatter formatter = new TimeFormatter();
+        assertEquals("00:00", format(formatter, 0));
+        assertEquals("00:59", format(formatter, 59999));
+        assertEquals("01:30", format(formatter, 90 * SECOND));
+        assertEquals("99:59", format(formatter, (99 * 60 + 59) * SECOND));
+        assertEquals("100:00", format(formatter, 100 * 60 * SECOND));
+
+        // The minutes stop at three digits
+        assertEquals("999:00", format(formatter, 10000 * 60 * SECOND));
+    }
+
+    @Test
+    public void onlyFormatsWhenTheSecondChanges() {
+        TimeFormatter formatter = new TimeFormatter();
+        assertTrue(formatter.format(61500));
+        assertFalse(formatter.format(61001));
+        assertTrue(formatter.format(60999));
+
+        formatter.reset();
+        assertTrue(formatter.format(60999));
+    }
+
+    @Test
+    public void readsAsTheTimeItFormatted() {
+        TimeFormatter formatter = new TimeFormatter();
+        formatter.format(90 * SECOND);
+
+        // Copied into other text through the CharSequence, as MainActivity shows it
+        StringBuilder text = new StringBuilder("00:00");
+        text.setLength(0);
+        text.append(formatter);
+        assertEquals("01:30", text.toString());
+        assertEquals(5, formatter.length());
+        assertEquals(':', formatter.charAt(2));
+        assertEquals("30", formatter.subSequence(3, 5).toString());
+        assertEquals("01:30", formatter.toString());
+    }
+
+    private static String format(TimeFormatter formatter, long millis) {
+        formatter.format(millis);
+        return new String(formatter.getBuffer(), 0, formatter.length());
+    }
+}
@@ -0,0 +1,256 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Timer ticked as fast as it will go on a virtual clock, while several threads add and remove
+ * listeners of it at random, keeps its listener list straight:
+ *
+ * - listeners that stay added the whole time get every event the timer sends, and nothing else,
+ * - a listener gets at most one more event after its removal returns,
+ * - a slow listener behind a CoalescingTimerListener ends on the timer's last tick,
+ * - every listener that was added is removed again, and nothing throws.
+ */
+public class TimerListenerStressTest {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 20000;
+    private static final long[] SEEDS = {1, 2, 3};
+
+    // The most listeners each thread holds at once, and how long the slow listener takes now and then
+    private static final int MAX_HELD = 8;
+    private static final long SLOW_MILLIS = 1;
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    @Test(timeout = 60000)
+    public void listenersComingAndGoingGetEveryEventTheyShould() throws InterruptedException {
+        for (long seed : SEEDS) {
+            stress(seed);
+        }
+    }
+
+    private void stress(long seed) throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        final Timer timer = new Timer(clock);
+
+        // Three listeners stay for the whole run, added before any come and go
+        CountingListener first = new CountingListener();
+        timer.addTimerListener(first);
+
+        SlowListener slow = new SlowListener();
+        ExecutorService slowThread = Executors.newSingleThreadExecutor();
+        CoalescingTimerListener coalescing = new CoalescingTimerListener(slow, slowThread);
+        timer.addTimerListener(coalescing);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> churners = new ArrayList<>();
+        List<List<Removal>> removals = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(seed + t);
+            final List<Removal> removed = new ArrayList<>();
+            removals.add(removed);
+            Thread churner = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ready.await();
+                        churn(timer, random, removed);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "churner-" + t);
+            churner.start();
+            churners.add(churner);
+        }
+
+        CountingListener last = new CountingListener();
+        timer.addTimerListener(last);
+
+        // Tick the timer until every thread is done, counting what it should have sent
+        Random random = new Random(seed);
+        long ticks = 0, adjustments = 0, pauses = 0, finishes = 0;
+        ready.countDown();
+        try {
+            while (anyAlive(churners)) {
+                timer.resetTo(1 + random.nextInt(120));
+                ticks++;
+                while (timer.isRunning()) {
+                    double choice = random.nextDouble();
+                    if (choice < 0.02 && timer.getRemainingTime() > MINUTE) {
+                        timer.subtractMinute();
+                        adjustments++;
+                        ticks++;
+                    } else if (choice < 0.04) {
+                        timer.setRunning(false);
+                        timer.setRunning(true);
+                        pauses += 2;
+                        ticks++;
+                    } else {
+                        clock.advance(SECOND);
+                        if (timer.isRunning()) {
+                            ticks++;
+                        }
+                    }
+                }
+                finishes++;
+            }
+
+            // End on a tick, so the slow listener has a known last tick to end on
+            timer.resetTo(5);
+            timer.setRunning(false);
+            ticks++;
+            pauses++;
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+        for (Thread churner : churners) {
+            churner.join();
+        }
+        slowThread.shutdown();
+        assertTrue(slowThread.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertNull("seed " + seed, failure.get());
+        assertEquals("ticks, seed " + seed, ticks, first.ticks.get());
+        assertEquals("ticks, seed " + seed, ticks, last.ticks.get());
+        assertEquals("events, seed " + seed, ticks + adjustments + pauses + finishes, first.events.get());
+        assertEquals("events, seed " + seed, first.events.get(), last.events.get());
+
+        // Every thread is done, so its removals can be read
+        for (List<Removal> removed : removals) {
+            for (Removal removal : removed) {
+                assertTrue("events after removal, seed " + seed, removal.listener.events.get() <= removal.events + 1);
+            }
+        }
+
+        assertEquals("slow listener's last tick, seed " + seed, first.lastTick.get(), slow.lastTick.get());
+        assertEquals(3, timer.numberOfListeners());
+        timer.removeTimerListener(first);
+        timer.removeTimerListener(coalescing);
+        timer.removeTimerListener(last);
+        assertEquals(0, timer.numberOfListeners());
+    }
+
+    /**
+     * Adds and removes listeners at random, holding a few at a time, and removes them all at the
+     * end. Each removal is added to the list with the number of events the listener had got by
+     * the time it returned.
+     */
+    private static void churn(Timer timer, Random random, List<Removal> removed) {
+        List<CountingListener> held = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (held.isEmpty() || (held.size() < MAX_HELD && random.nextBoolean())) {
+                CountingListener listener = new CountingListener();
+                timer.addTimerListener(listener);
+                held.add(listener);
+            } else {
+                CountingListener listener = held.remove(random.nextInt(held.size()));
+                timer.removeTimerListener(listener);
+                removed.add(new Removal(listener));
+            }
+        }
+        for (CountingListener listener : held) {
+            timer.removeTimerListener(listener);
+            removed.add(new Removal(listener));
+        }
+    }
+
+    private static boolean anyAlive(List<Thread> threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A listener that was removed, and the number of events it had got when it was.
+     */
+    private static class Removal {
+
+        final CountingListener listener;
+        final int events;
+
+        Removal(CountingListener listener) {
+            this.listener = listener;
+            this.events = listener.events.get();
+        }
+    }
+
+    /**
+     * Counts the events it gets, which may be read from any thread.
+     */
+    private static class CountingListener implements Timer.TimerListener {
+
+        final AtomicInteger events = new AtomicInteger();
+        final AtomicInteger ticks = new AtomicInteger();
+        final AtomicLong lastTick = new AtomicLong(-1);
+
+        @Override
+        public void onTimerRestart() {
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void onTimerFinish() {
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void onTimerTick(long millisRemaining) {
+            lastTick.set(millisRemaining);
+            ticks.incrementAndGet();
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void onTimerAdjusted(long millisRemaining) {
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void onTimerPauseChanged(boolean running) {
+            events.incrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a while over some of its ticks, as a listener drawing on a busy thread would.
+     */
+    private static class SlowListener extends Timer.SimpleTimerListener {
+
+        final AtomicInteger ticks = new AtomicInteger();
+        final AtomicLong lastTick = new AtomicLong(-1);
+
+        @Override
+        public void onTimerTick(long millisRemaining) {
+            lastTick.set(millisRemaining);
+            if (ticks.incrementAndGet() % 16 == 0) {
+                try {
+                    Thread.sleep(SLOW_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
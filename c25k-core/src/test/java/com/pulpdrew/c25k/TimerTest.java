@@ -0,0 +1,182 @@
+package com.pulpdrew.c25k;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Timer driven through an hour of ticks that each run up to most of a second late, as they
+ * would on a busy main thread, never drifts: every time it reports is exactly what is left
+ * of its time on the clock, however often it is paused, resumed or adjusted.
+ */
+public class TimerTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    // The most that a post runs late by
+    private static final int MAX_JITTER = 900;
+
+    private final Random random = new Random(1);
+    private final VirtualClock clock = new VirtualClock();
+    private Timer timer;
+
+    // The running time the timer should have left, worked out apart from the timer
+    private long expectedRemaining;
+    private long resumedAt;
+    private boolean running;
+
+    private int ticks, finishes;
+
+    /**
+     * Runs every post late by a random amount, up to MAX_JITTER.
+     */
+    private final Clock jitteryClock = new Clock() {
+        @Override
+        public long elapsedRealtime() {
+            return clock.elapsedRealtime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return clock.currentTimeMillis();
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            clock.postDelayed(runnable, delayMillis + random.nextInt(MAX_JITTER));
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            clock.removeCallbacks(runnable);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        timer = new Timer(jitteryClock);
+        timer.addTimerListener(new Timer.SimpleTimerListener() {
+            @Override
+            public void onTimerTick(long millisRemaining) {
+                assertEquals("tick " + ticks, Math.max(0, remainingNow()), millisRemaining);
+                ticks++;
+            }
+
+            @Override
+            public void onTimerFinish() {
+                assertTrue(remainingNow() <= 0);
+                expectedRemaining = 0;
+                running = false;
+                finishes++;
+            }
+        });
+    }
+
+    @Test
+    public void jitteredTicksNeverDrift() {
+        start(HOUR);
+        while (timer.isRunning()) {
+            clock.advance(1 + random.nextInt((int) SECOND));
+        }
+
+        assertEquals(1, finishes);
+        assertTrue(ticks >= HOUR / (SECOND + MAX_JITTER));
+
+        // Every tick ran late, but the hour ended within one late post of the hour
+        assertTrue(clock.elapsedRealtime() >= HOUR);
+        assertTrue(clock.elapsedRealtime() < HOUR + SECOND + MAX_JITTER);
+    }
+
+    @Test
+    public void pausingAndAdjustingNeverDrifts() {
+        start(HOUR);
+        long pausedFor = 0;
+        while (finishes == 0) {
+            double choice = random.nextDouble();
+            if (choice < 0.05) {
+                setRunning(!running);
+            } else if (choice < 0.06 && remainingNow() > 2 * MINUTE) {
+                expectedRemaining -= MINUTE;
+                timer.subtractMinute();
+            } else if (choice < 0.07 && remainingNow() + MINUTE <= HOUR) {
+                expectedRemaining += MINUTE;
+                timer.addMinute();
+            }
+
+            long step = 1 + random.nextInt((int) SECOND);
+            if (!running) {
+                pausedFor += step;
+            }
+            clock.advance(step);
+
+            // Read between ticks, the time left is still exact to the millisecond
+            assertEquals(Math.max(0, remainingNow()), timer.getRemainingTime());
+        }
+
+        assertEquals(1, finishes);
+        assertTrue(pausedFor > 0);
+    }
+
+    @Test
+    public void continuedStagesNeverDrift() {
+        final long[] lengths = {300, 60, 90, 60, 90, 60, 90, 60, 90, 300};
+        final long[] ends = new long[lengths.length];
+        long end = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            end += lengths[i] * SECOND;
+            ends[i] = end;
+        }
+
+        // Each stage continues from the exact deadline of the one before, however late its finish was noticed
+        final int[] stage = {0};
+        timer.addTimerListener(new Timer.SimpleTimerListener() {
+            @Override
+            public void onTimerFinish() {
+                if (++stage[0] < lengths.length) {
+                    expectedRemaining = ends[stage[0]];
+                    resumedAt = 0;
+                    running = true;
+                    timer.continueTo((int) lengths[stage[0]]);
+                }
+            }
+        });
+
+        start(lengths[0] * SECOND);
+        while (stage[0] < lengths.length) {
+            clock.advance(1 + random.nextInt((int) SECOND));
+        }
+
+        assertEquals(lengths.length, finishes);
+        assertFalse(timer.isRunning());
+        assertTrue(clock.elapsedRealtime() >= end);
+        assertTrue(clock.elapsedRealtime() < end + SECOND + MAX_JITTER);
+    }
+
+    private void start(long millis) {
+        expectedRemaining = millis;
+        resumedAt = clock.elapsedRealtime();
+        running = true;
+        timer.resetTo((int) (millis / SECOND));
+    }
+
+    private void setRunning(boolean run) {
+        if (run) {
+            resumedAt = clock.elapsedRealtime();
+        } else {
+            expectedRemaining = remainingNow();
+        }
+        running = run;
+        timer.setRunning(run);
+    }
+
+    private long remainingNow() {
+        return running ? expectedRemaining - (clock.elapsedRealtime() - resumedAt) : expectedRemaining;
+    }
+}
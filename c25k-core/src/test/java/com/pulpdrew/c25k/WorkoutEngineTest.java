@@ -0,0 +1,256 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The engine runs a day through its stages to the end, holds its time while paused, moves across
+ * stage boundaries either way as minutes are added and taken away, finishes the day when it is
+ * moved past the end, and picks a workout back up at the time it had left.
+ */
+public class WorkoutEngineTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private HistoryLog history;
+    private VirtualClock clock;
+    private Day day;
+    private RecordingSink sink;
+    private WorkoutEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        history = WorkoutFixture.openHistory(folder);
+        clock = new VirtualClock();
+
+        // Stages of 60, 90, 120 and 60 seconds, ending at 60, 150, 270 and 330 seconds
+        day = new Day(1, 1, WorkoutFixture.plan(4), history);
+        sink = new RecordingSink();
+        engine = new WorkoutEngine(clock, sink);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void startRunsTheFirstStage() {
+        engine.start(day);
+
+        assertTrue(engine.isStarted());
+        assertTrue(engine.isTimerRunning());
+        assertEquals(0, day.getStageNumber());
+        assertEquals(1, sink.stageChanges);
+        assertTrue(sink.forward);
+        assertEquals(60 * SECOND, engine.getRemainingTime());
+        assertEquals(60 * SECOND, sink.lastTick);
+    }
+
+    @Test
+    public void aDayRunsThroughEveryStageAndFinishes() {
+        engine.start(day);
+
+        clock.advance(150 * SECOND);
+        assertEquals(2, day.getStageNumber());
+        assertEquals(150 * SECOND, engine.getElapsedTime());
+
+        clock.advance(180 * SECOND);
+        assertEquals(4, sink.stageChanges);
+        assertTrue(sink.finished);
+        assertTrue(sink.ended);
+        assertFalse(engine.isStarted());
+        assertTrue(day.isComplete());
+    }
+
+    @Test
+    public void pausingHoldsTheTime() {
+        engine.start(day);
+        clock.advance(10 * SECOND);
+
+        engine.togglePause();
+        clock.advance(5 * MINUTE);
+        assertFalse(engine.isTimerRunning());
+        assertEquals(50 * SECOND, engine.getRemainingTime());
+        assertEquals(10 * SECOND, engine.getElapsedTime());
+        assertEquals(1, sink.stageChanges);
+
+        // Once resumed, the stage runs out 50 seconds later
+        engine.togglePause();
+        assertTrue(engine.isTimerRunning());
+        clock.advance(50 * SECOND - 1);
+        assertEquals(0, day.getStageNumber());
+        clock.advance(1);
+        assertEquals(1, day.getStageNumber());
+    }
+
+    @Test
+    public void minutesMoveAcrossStageBoundariesEitherWay() {
+        engine.start(day);
+        clock.advance(70 * SECOND);
+        assertEquals(1, day.getStageNumber());
+
+        // Back across the boundary, to 10 seconds into the first stage
+        engine.addMinute();
+        assertEquals(0, day.getStageNumber());
+        assertFalse(sink.forward);
+        assertEquals(10 * SECOND, engine.getElapsedTime());
+        assertEquals(50 * SECOND, engine.getRemainingTime());
+        assertEquals(50 * SECOND, sink.lastTick);
+
+        // And forward across it again
+        engine.subtractMinute();
+        assertEquals(1, day.getStageNumber());
+        assertTrue(sink.forward);
+        assertEquals(70 * SECOND, engine.getElapsedTime());
+        assertEquals(80 * SECOND, engine.getRemainingTime());
+        assertEquals(2, sink.adjustments);
+
+        // The timer keeps its deadline from the new time
+        clock.advance(80 * SECOND);
+        assertEquals(2, day.getStageNumber());
+        assertEquals(150 * SECOND, engine.getElapsedTime());
+    }
+
+    @Test
+    public void minutesMoveAcrossStageBoundariesWhilePaused() {
+        engine.start(day);
+        clock.advance(70 * SECOND);
+        engine.togglePause();
+
+        engine.addMinute();
+        assertEquals(0, day.getStageNumber());
+        assertFalse(engine.isTimerRunning());
+        clock.advance(5 * MINUTE);
+        assertEquals(10 * SECOND, engine.getElapsedTime());
+    }
+
+    @Test
+    public void addingAMinuteAtTheStartStaysAtTheStart() {
+        engine.start(day);
+        clock.advance(30 * SECOND);
+
+        engine.addMinute();
+        assertEquals(0, day.getStageNumber());
+        assertEquals(0, engine.getElapsedTime());
+        assertEquals(60 * SECOND, engine.getRemainingTime());
+    }
+
+    @Test
+    public void takingAMinuteFromTheLastStageFinishes() {
+        engine.start(day);
+        engine.seekTo(300 * SECOND);
+        assertEquals(3, day.getStageNumber());
+
+        engine.subtractMinute();
+        assertTrue(sink.finished);
+        assertTrue(sink.ended);
+        assertTrue(day.isComplete());
+    }
+
+    @Test
+    public void seekingPastTheEndFinishes() {
+        engine.start(day);
+
+        engine.seekTo(10 * MINUTE);
+        assertTrue(sink.finished);
+        assertTrue(sink.ended);
+        assertFalse(engine.isStarted());
+        assertTrue(day.isComplete());
+
+        // Seeking once the workout has ended does nothing
+        engine.seekTo(0);
+        assertFalse(engine.isStarted());
+    }
+
+    @Test
+    public void resumingSendsTheTimeLeftRatherThanTheStageLength() {
+        engine.start(day);
+        clock.advance(70 * SECOND);
+        Checkpoint checkpoint = engine.getCheckpoint();
+        engine.getTimer().setRunning(false);
+
+        // Another process picks it up 5 seconds later, and never sends the full 90 seconds
+        clock.advance(5 * SECOND);
+        RecordingSink resumed = new RecordingSink();
+        WorkoutEngine second = new WorkoutEngine(clock, resumed);
+        second.resume(new Day(1, 1, WorkoutFixture.plan(4), history), checkpoint);
+
+        assertTrue(second.isTimerRunning());
+        assertEquals(75 * SECOND, second.getElapsedTime());
+        assertEquals(75 * SECOND, resumed.firstTick);
+        assertEquals(75 * SECOND, resumed.highestTick);
+        clock.advance(75 * SECOND);
+        assertEquals(2, second.getDay().getStageNumber());
+    }
+
+    @Test
+    public void resumingAPausedWorkoutStaysPaused() {
+        engine.start(day);
+        clock.advance(70 * SECOND);
+        engine.togglePause();
+        Checkpoint checkpoint = engine.getCheckpoint();
+
+        clock.advance(5 * MINUTE);
+        RecordingSink resumed = new RecordingSink();
+        WorkoutEngine second = new WorkoutEngine(clock, resumed);
+        second.resume(new Day(1, 1, WorkoutFixture.plan(4), history), checkpoint);
+
+        assertFalse(second.isTimerRunning());
+        assertEquals(70 * SECOND, second.getElapsedTime());
+        assertEquals(80 * SECOND, resumed.highestTick);
+        clock.advance(5 * MINUTE);
+        assertEquals(70 * SECOND, second.getElapsedTime());
+    }
+
+    /**
+     * Keeps what the engine has sent.
+     */
+    private static class RecordingSink extends WorkoutFixture.SimpleEventSink {
+
+        int stageChanges, adjustments;
+        boolean forward, finished, ended;
+        long firstTick = -1, lastTick = -1, highestTick = -1;
+
+        @Override
+        public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+            stageChanges++;
+            this.forward = forward;
+        }
+
+        @Override
+        public void onTimerAdjusted() {
+            adjustments++;
+        }
+
+        @Override
+        public void onTimerTick(long millisLeft) {
+            if (firstTick < 0) {
+                firstTick = millisLeft;
+            }
+            lastTick = millisLeft;
+            highestTick = Math.max(highestTick, millisLeft);
+        }
+
+        @Override
+        public void onWorkoutFinished() {
+            finished = true;
+        }
+
+        @Override
+        public void onWorkoutEnded() {
+            ended = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.pulpdrew.c25k;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * What the tests of a running workout share: a plan of a single day to run, a history log for
+ * it to record its events in, a sink that ignores the engine's events, and an alarm clock that
+ * keeps its one alarm as the AlarmManager would.
+ */
+final class WorkoutFixture {
+
+    private WorkoutFixture() {
+    }
+
+    /**
+     * Returns a plan of one day, week 1 day 1, of the given number of stages. The stages run and
+     * walk in turn, for 60, 90 and 120 seconds in turn.
+     */
+    static Plan plan(int numberOfStages) {
+        short[] stages = new short[numberOfStages];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = Stage.pack(i % 2 == 0 ? Stage.StageType.RUN : Stage.StageType.WALK, 60 + 30 * (i % 3));
+        }
+        return plan(stages);
+    }
+
+    /**
+     * Returns a plan of one day, week 1 day 1, of the given packed stages.
+     */
+    static Plan plan(short[] stages) {
+        return new Plan(new int[]{1}, new int[]{1}, new String[]{""}, new short[][]{stages});
+    }
+
+    /**
+     * Opens a new history log in the given folder. It should be closed once the test is done.
+     */
+    static HistoryLog openHistory(TemporaryFolder folder) throws IOException {
+        HistoryLog history = new HistoryLog(folder.newFile("history.log"));
+        history.open();
+        return history;
+    }
+
+    /**
+     * Sink that ignores every event, for tests to override the ones they look at.
+     */
+    static class SimpleEventSink implements WorkoutEngine.EventSink {
+
+        @Override
+        public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        }
+
+        @Override
+        public void onPauseChanged(boolean running) {
+        }
+
+        @Override
+        public void onTimerAdjusted() {
+        }
+
+        @Override
+        public void onTimerTick(long millisLeft) {
+        }
+
+        @Override
+        public void onWorkoutFinished() {
+        }
+
+        @Override
+        public void onWorkoutEnded() {
+        }
+    }
+
+    /**
+     * Keeps the one alarm as the AlarmManager would, counting how often it is set and fired.
+     */
+    static class FakeAlarmClock implements StageScheduler.AlarmClock {
+
+        long triggerAt = -1;
+        int sets, fired;
+
+        @Override
+        public void set(long triggerAtTime) {
+            triggerAt = triggerAtTime;
+            sets++;
+        }
+
+        @Override
+        public void cancel() {
+            triggerAt = -1;
+        }
+
+        boolean isSet() {
+            return triggerAt != -1;
+        }
+
+        /**
+         * Goes off, which clears the alarm.
+         */
+        void fire() {
+            triggerAt = -1;
+            fired++;
+        }
+    }
+}
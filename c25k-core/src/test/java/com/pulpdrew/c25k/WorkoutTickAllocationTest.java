@@ -0,0 +1,120 @@
+package com.pulpdrew.c25k;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * A tick of a running workout, from the clock through the Timer and the WorkoutEngine to the text
+ * of the stage and day times, allocates nothing.
+ */
+public class WorkoutTickAllocationTest {
+
+    private static final long SECOND = 1000;
+    private static final int TICKS = 5000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private HistoryLog history;
+
+    @Before
+    public void setUp() throws Exception {
+        history = WorkoutFixture.openHistory(folder);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void aTickAllocatesNothing() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        // A day of one stage as long as a stage can be, so that the ticks never move on to another
+        short[] stages = {Stage.pack(Stage.StageType.RUN, Stage.LENGTH_MASK)};
+        Day day = new Day(1, 1, WorkoutFixture.plan(stages), history);
+        VirtualClock clock = new VirtualClock();
+        TimeDisplay display = new TimeDisplay(day);
+        WorkoutEngine engine = new WorkoutEngine(clock, display);
+        engine.start(day);
+
+        // Warm up, so that the code is compiled and every buffer has grown to its size
+        for (int i = 0; i < TICKS; i++) {
+            clock.advance(SECOND);
+        }
+
+        // Reading the allocated bytes may itself allocate, so measure that first and take it off
+        long before = allocations.getThreadAllocatedBytes(thread);
+        long overhead = allocations.getThreadAllocatedBytes(thread) - before;
+
+        before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < TICKS; i++) {
+            clock.advance(SECOND);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertTrue(engine.isStarted());
+
+        // Every tick showed a new second, as did the start of the stage
+        assertEquals(2 * TICKS + 1, display.stageTimes);
+        assertEquals("bytes allocated by " + TICKS + " ticks", 0, allocated);
+
+        engine.stop();
+    }
+
+    /**
+     * Shows the times of each tick as MainActivity does, copying each new second into text that
+     * is kept from tick to tick.
+     */
+    private static class TimeDisplay extends WorkoutFixture.SimpleEventSink {
+
+        private final Day day;
+        private final TimeFormatter stageTime = new TimeFormatter();
+        private final TimeFormatter dayElapsed = new TimeFormatter();
+        private final TimeFormatter dayRemaining = new TimeFormatter();
+        private final StringBuilder stageText = new StringBuilder();
+        private final StringBuilder dayElapsedText = new StringBuilder();
+        private final StringBuilder dayRemainingText = new StringBuilder();
+        int stageTimes;
+
+        TimeDisplay(Day day) {
+            this.day = day;
+        }
+
+        @Override
+        public void onTimerTick(long millisLeft) {
+            long elapsed = day.getStageIndex().getEnd(0) - millisLeft;
+            if (stageTime.format(millisLeft)) {
+                show(stageText, stageTime);
+                stageTimes++;
+            }
+            if (dayElapsed.format(elapsed)) {
+                show(dayElapsedText, dayElapsed);
+            }
+            if (dayRemaining.format(day.getStageIndex().getLength() - elapsed + 999)) {
+                show(dayRemainingText, dayRemaining);
+            }
+        }
+
+        private static void show(StringBuilder text, TimeFormatter formatter) {
+            text.setLength(0);
+            text.append(formatter);
+        }
+    }
+}
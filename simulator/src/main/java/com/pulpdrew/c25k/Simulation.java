@@ -0,0 +1,467 @@
+package com.pulpdrew.c25k;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A single day run through a WorkoutEngine on a VirtualClock, with a script of user input at
+ * fixed times. Every event the engine sends is written to a trace and checked against the
+ * invariants of a workout, and the first one that doesn't hold fails the simulation.
+ *
+ * The simulation keeps a checkpoint of the workout the way WorkoutService does, taken after
+ * every event but never on a tick. Killing the workout throws the engine away and resumes a new
+ * one from the last checkpoint, which must pick up exactly where the old one was.
+ *
+ * It also plans the stage cues with a CueScheduler as the service does. Every boundary that
+ * the timer runs up to must have had its cue given ahead of it, and each cue's latency, how long
+ * after the time it was planned for it was given, is measured against the virtual clock.
+ *
+ * On every tick, the time through the day that MainActivity shows is checked against the engine.
+ */
+class Simulation implements WorkoutEngine.EventSink, CueScheduler.CueListener {
+
+    /**
+     * The buttons that a script can press.
+     */
+    enum Action {
+        PAUSE, ADD_MINUTE, SUBTRACT_MINUTE, SEEK, KILL, STOP
+    }
+
+    /**
+     * A press of a button at a time since the start of the day, in milliseconds.
+     */
+    static class Input {
+
+        final long time;
+        final Action action;
+
+        // The stage to seek to the start of, for SEEK
+        final int stage;
+
+        // How long the workout stays dead before it is resumed, in milliseconds, for KILL
+        final long downtime;
+
+        Input(long time, Action action) {
+            this(time, action, 0, 0);
+        }
+
+        Input(long time, Action action, int stage, long downtime) {
+            this.time = time;
+            this.action = action;
+            this.stage = stage;
+            this.downtime = downtime;
+        }
+    }
+
+    /**
+     * Thrown when the workout breaks one of its invariants.
+     */
+    static class InvariantException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        InvariantException(String message) {
+            super(message);
+        }
+    }
+
+    // Longer than any day could take, however many minutes are added
+    private static final long MAX_DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final long MINUTE = 60 * 1000;
+
+    private final Plan plan;
+    private final HistoryLog history;
+    private final List<Input> script;
+    private final boolean ticking;
+    private final StringBuilder trace;
+
+    private final VirtualClock clock;
+    private final CueScheduler cues;
+
+    // Replaced when the workout is killed and resumed
+    private Day day;
+    private WorkoutEngine engine;
+
+    // The last checkpoint, as it would be in the checkpoint file, or null if there is none
+    private byte[] checkpoint;
+
+    // What the engine has reported so far
+    private int stageNumber;
+    private int finishes;
+    private int ends;
+    private boolean stopped;
+
+    // Whether the workout is being moved through the day, which can skip stages
+    private boolean seeking;
+
+    // Whether the workout is being resumed, which starts a new engine partway through the day
+    private boolean resuming;
+
+    // The time the posted cue should be given at, and what the cues have measured so far
+    private long cueDueAt;
+    private int cueCount;
+    private int lateCues;
+    private long maxCueLatency;
+
+    // Whether the workout is reaching a stage, when any cue is given at the boundary rather than posted
+    private boolean reaching;
+
+    /**
+     * @param plan    the plan of the day to run.
+     * @param history the history that the day records its events in.
+     * @param index   the index of the day in the plan.
+     * @param script  the input to apply, in order of time.
+     * @param ticking whether the timer ticks every second, as it does while the app is open.
+     * @param trace   where to write the events.
+     */
+    Simulation(Plan plan, HistoryLog history, int index, List<Input> script, boolean ticking, StringBuilder trace) {
+        this.plan = plan;
+        this.history = history;
+        this.script = script;
+        this.ticking = ticking;
+        this.trace = trace;
+        this.clock = new VirtualClock();
+        this.cues = new CueScheduler(clock, this);
+        this.day = new Day(plan.getWeek(index), plan.getDay(index), plan, history);
+        this.engine = newEngine();
+        stageNumber = -1;
+    }
+
+    /**
+     * Runs the day to its end, applying the script on the way.
+     *
+     * @return true if the day was finished, or false if the script stopped it.
+     * @throws InvariantException if the workout broke one of its invariants.
+     */
+    boolean run() {
+
+        log("START", "week " + day.getWeekNumber() + " day " + day.getDayNumber());
+        engine.start(day);
+
+        for (Input input : script) {
+            clock.advanceTo(input.time);
+            if (!engine.isStarted()) {
+                break;
+            }
+            checkDeadline();
+            apply(input);
+        }
+
+        // Let the rest of the day run out, resuming it first if the script left it paused
+        if (engine.isStarted() && !engine.isTimerRunning()) {
+            apply(new Input(clock.elapsedRealtime(), Action.PAUSE));
+        }
+        clock.advance(MAX_DAY_MILLIS);
+
+        check(!engine.isStarted(), "the day never ended");
+        check(ends == 1, "the day ended " + ends + " times");
+        check(finishes == (stopped ? 0 : 1), "the day was finished " + finishes + " times");
+        check(stopped || day.isComplete(), "the finished day was not marked complete");
+        return !stopped;
+    }
+
+    private void apply(Input input) {
+        switch (input.action) {
+            case PAUSE:
+                log("PAUSE", null);
+                engine.togglePause();
+                break;
+            case ADD_MINUTE:
+                log("ADD_MINUTE", null);
+                moveBy(-MINUTE);
+                break;
+            case SUBTRACT_MINUTE:
+                log("SUBTRACT_MINUTE", null);
+                moveBy(MINUTE);
+                break;
+            case SEEK:
+                log("SEEK", "stage " + input.stage);
+                seeking = true;
+                engine.seekTo(day.getStageIndex().getStart(input.stage));
+                seeking = false;
+                check(engine.getDay().getStageNumber() == input.stage, "seeking went to the wrong stage");
+                check(engine.getRemainingTime() == day.getStage(input.stage).getLength() * 1000L,
+                        "seeking did not go to the start of the stage");
+                break;
+            case KILL:
+                log("KILL", input.downtime + "ms");
+                kill(input.downtime);
+                break;
+            case STOP:
+                log("STOP", null);
+                stopped = true;
+                engine.stop();
+                break;
+        }
+    }
+
+    /**
+     * Adds or takes away a minute, and checks that the workout moved through the day by exactly
+     * that much, or finished if that took it past the end.
+     */
+    private void moveBy(long millis) {
+        long target = Math.max(0, engine.getElapsedTime() + millis);
+
+        seeking = true;
+        if (millis < 0) {
+            engine.addMinute();
+        } else {
+            engine.subtractMinute();
+        }
+        seeking = false;
+
+        if (target >= day.getStageIndex().getLength()) {
+            check(!engine.isStarted() && finishes == 1, "moving past the end did not finish the day");
+        } else {
+            check(engine.getElapsedTime() == target,
+                    "moved to " + engine.getElapsedTime() + "ms through the day instead of " + target + "ms");
+        }
+    }
+
+    /**
+     * Kills the workout, leaves it dead for a while, and resumes it in a new engine from the
+     * last checkpoint. A running workout must carry on from exactly where it would have got to
+     * in that time, finishing if that is past the end, and a paused one from where it was.
+     */
+    private void kill(long downtime) {
+        check(checkpoint != null, "there was no checkpoint of the running workout");
+
+        boolean running = engine.isTimerRunning();
+        long expected = engine.getElapsedTime() + (running ? downtime : 0);
+
+        // The process dies, taking the engine and its timer with it
+        engine.getTimer().setRunning(false);
+        cues.cancel();
+        clock.advance(downtime);
+
+        Checkpoint restored = Checkpoint.readFrom(ByteBuffer.wrap(checkpoint));
+        check(restored != null, "the checkpoint could not be read back");
+        check(!restored.isStale(clock.elapsedRealtime(), clock.currentTimeMillis()),
+                "the checkpoint was taken as stale on the same boot");
+        check(restored.getWeek() == day.getWeekNumber() && restored.getDay() == day.getDayNumber(),
+                "the checkpoint is of the wrong day");
+        log("RESUME", "stage " + restored.getStage());
+
+        day = new Day(restored.getWeek(), restored.getDay(), plan, history);
+        engine = newEngine();
+        resuming = true;
+        engine.resume(day, restored);
+        resuming = false;
+
+        if (expected >= day.getStageIndex().getLength()) {
+            check(!engine.isStarted() && finishes == 1, "resuming past the end did not finish the day");
+            return;
+        }
+        check(engine.isStarted(), "resuming ended the workout");
+        check(engine.getElapsedTime() == expected,
+                "resumed " + engine.getElapsedTime() + "ms through the day instead of " + expected + "ms");
+        check(day.getStageNumber() == day.getStageIndex().stageAt(expected), "resumed on the wrong stage");
+        check(engine.isTimerRunning() == running, "resuming changed whether the workout was paused");
+    }
+
+    /*
+     * What the cues measured
+     */
+
+    int getCueCount() {
+        return cueCount;
+    }
+
+    /**
+     * Returns how many cues were given at their boundary rather than ahead of it, which only
+     * happens when the workout is moved or resumed onto a new stage. The cue for the first
+     * stage isn't counted, as there is no boundary before it to give it ahead of.
+     */
+    int getLateCues() {
+        return lateCues;
+    }
+
+    /**
+     * Returns the longest that a cue was given after the time it was planned for, in
+     * milliseconds.
+     */
+    long getMaxCueLatency() {
+        return maxCueLatency;
+    }
+
+    private WorkoutEngine newEngine() {
+        WorkoutEngine engine = new WorkoutEngine(clock, this);
+        engine.setTicking(ticking);
+        return engine;
+    }
+
+    /**
+     * Takes a checkpoint of the workout after a change in its state, as WorkoutService does.
+     */
+    private void saveCheckpoint() {
+        Checkpoint current = engine.getCheckpoint();
+        if (current == null) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(Checkpoint.SIZE);
+        current.writeTo(bytes);
+        checkpoint = bytes.array();
+    }
+
+    @Override
+    public void onStageChanged(Stage stage, int stageNumber, boolean forward) {
+        log("STAGE", stageNumber + " " + stage.getStageType() + " " + stage.getLength() + "s");
+
+        check(stage == day.getStage(stageNumber), "stage " + stageNumber + " is not the day's stage");
+
+        // A resumed workout is a new engine, so it picks up its stage without moving to it
+        check(resuming ? !forward : forward == stageNumber > this.stageNumber,
+                "moved the wrong way to stage " + stageNumber);
+
+        // Unless the workout is moved through the day, stages are never skipped
+        if (!seeking && !resuming) {
+            check(stageNumber == this.stageNumber + 1, "moved to stage " + stageNumber + " from " + this.stageNumber);
+
+            // Each stage starts with its whole length, however late or early the last one ended
+            check(engine.getRemainingTime() == stage.getLength() * 1000L,
+                    "stage " + stageNumber + " started with " + engine.getRemainingTime() + "ms left");
+        }
+
+        this.stageNumber = stageNumber;
+        checkDayTime(engine.getRemainingTime());
+        if (forward) {
+            reached(stage, stageNumber);
+        }
+        planCue();
+        saveCheckpoint();
+    }
+
+    @Override
+    public void onPauseChanged(boolean running) {
+        check(running == engine.getTimer().isRunning(), "the engine and its timer disagree on pausing");
+        planCue();
+        saveCheckpoint();
+    }
+
+    @Override
+    public void onTimerAdjusted() {
+        checkRemaining(engine.getRemainingTime());
+        checkDayTime(engine.getRemainingTime());
+        planCue();
+        saveCheckpoint();
+    }
+
+    @Override
+    public void onTimerTick(long millisLeft) {
+        checkRemaining(millisLeft);
+        checkDeadline();
+        checkDayTime(millisLeft);
+    }
+
+    @Override
+    public void onWorkoutFinished() {
+        log("FINISH", null);
+        check(seeking || resuming || stageNumber == day.numberOfStages() - 1, "finished on stage " + stageNumber);
+        finishes++;
+        reached(null, day.numberOfStages());
+    }
+
+    @Override
+    public void onWorkoutEnded() {
+        log("END", null);
+        ends++;
+        cues.cancel();
+        checkpoint = null;
+    }
+
+    @Override
+    public void onCue(Stage next, long boundary) {
+        long now = clock.elapsedRealtime();
+        log("CUE", next == null ? "finish" : next.getStageType() + " in " + (boundary - now) + "ms");
+
+        check(boundary >= now, "the cue was given after its boundary");
+        check(boundary - now <= CueScheduler.LEAD_MILLIS, "the cue was given too early");
+        cueCount++;
+        if (!reaching) {
+            maxCueLatency = Math.max(maxCueLatency, now - cueDueAt);
+        }
+    }
+
+    /**
+     * Plans the cue for the end of the current stage, or cancels it if the workout is paused, as
+     * WorkoutService does.
+     */
+    private void planCue() {
+        if (engine.isStarted() && engine.getTimer().isRunning()) {
+            long deadline = engine.getTimer().getDeadline();
+            cueDueAt = Math.max(clock.elapsedRealtime(), deadline - CueScheduler.LEAD_MILLIS);
+            cues.plan(day, deadline);
+        } else {
+            cues.cancel();
+        }
+    }
+
+    /**
+     * Tells the cues that the workout reached a stage, or finished. A boundary that the timer ran
+     * up to must have been cued ahead of it.
+     */
+    private void reached(Stage stage, int stageNumber) {
+        reaching = true;
+        boolean late = cues.onReached(stage, stageNumber);
+        reaching = false;
+
+        // The first stage has no boundary before it, so its cue is always given as it starts
+        if (late && stageNumber > 0) {
+            check(seeking || resuming, "stage " + stageNumber + " was not cued ahead of its boundary");
+            lateCues++;
+        }
+    }
+
+    /*
+     * Invariants
+     */
+
+    private void checkRemaining(long millisLeft) {
+        check(millisLeft >= 0, "remaining time went negative: " + millisLeft);
+        check(millisLeft <= engine.getTimer().getDuration(), "remaining time is more than the stage");
+    }
+
+    /**
+     * The time through the day that MainActivity works out from the end of the stage on each
+     * tick must be the engine's, and with the time left add up to the whole day. The timer
+     * ticks for a new stage before the stage change is sent, and MainActivity shows the day's
+     * time again when it gets the change, so those ticks aren't checked, and neither is the
+     * adjustment that finishes the day.
+     */
+    private void checkDayTime(long millisLeft) {
+        if (!engine.isStarted() || day.getStageNumber() != stageNumber) {
+            return;
+        }
+        StageIndex index = day.getStageIndex();
+        long elapsed = index.getEnd(stageNumber) - millisLeft;
+        check(elapsed == engine.getElapsedTime(),
+                "ticked " + elapsed + "ms through the day, but the engine is " + engine.getElapsedTime() + "ms through");
+        check(elapsed + engine.getDayRemainingTime() == index.getLength(), "the day's time doesn't add up to its length");
+    }
+
+    /**
+     * A running stage must end as soon as its deadline passes.
+     */
+    private void checkDeadline() {
+        Timer timer = engine.getTimer();
+        check(!timer.isRunning() || timer.getDeadline() >= clock.elapsedRealtime(),
+                "stage " + stageNumber + " ran past its deadline");
+    }
+
+    private void check(boolean condition, String message) {
+        if (!condition) {
+            log("FAILED", message);
+            throw new InvariantException(message);
+        }
+    }
+
+    private void log(String event, String detail) {
+        if (detail == null) {
+            trace.append(String.format(Locale.US, "%10.3f %s%n", clock.elapsedRealtime() / 1000.0, event));
+        } else {
+            trace.append(String.format(Locale.US, "%10.3f %-16s%s%n", clock.elapsedRealtime() / 1000.0, event, detail));
+        }
+    }
+}
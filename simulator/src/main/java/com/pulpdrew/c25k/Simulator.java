@@ -0,0 +1,143 @@
+package com.pulpdrew.c25k;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs every day of a plan through the workout engine on a virtual clock, each time with a
+ * random script of pauses, minute adjustments, seeks, kills and stops, and checks that every run holds to
+ * the invariants in Simulation. A failing run prints its trace and its seed so it can be replayed.
+ * It also reports how many stage cues were given, and the worst latency of any of them.
+ *
+ * Usage: Simulator plan-directory [--seed seed] [--runs runs] [--trace]
+ */
+public class Simulator {
+
+    private static final int DEFAULT_RUNS = 10;
+
+    // The most inputs a random script presses, and how likely it is to stop the day early
+    private static final int MAX_INPUTS = 12;
+    private static final double STOP_CHANCE = 0.1;
+
+    // The longest a killed workout stays dead before it is resumed
+    private static final long MAX_DOWNTIME_MILLIS = 10 * 60 * 1000;
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.err.println("Usage: Simulator plan-directory [--seed seed] [--runs runs] [--trace]");
+            System.exit(2);
+        }
+
+        File planDirectory = new File(args[0]);
+        long seed = System.nanoTime();
+        int runs = DEFAULT_RUNS;
+        boolean printTraces = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--trace":
+                    printTraces = true;
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Plan plan = TextPlanReader.readPlan(planDirectory);
+        Random random = new Random(seed);
+
+        // Each run gets a fresh history, so that completion is checked from scratch
+        File historyFile = File.createTempFile("simulation", ".log");
+        historyFile.delete();
+
+        int days = 0, finished = 0, inputs = 0;
+        int cues = 0, lateCues = 0;
+        long maxCueLatency = 0;
+        long start = System.nanoTime();
+        try {
+            for (int run = 0; run < runs; run++) {
+                HistoryLog history = new HistoryLog(historyFile);
+                history.open();
+
+                for (int i = 0; i < plan.numberOfDays(); i++) {
+                    List<Simulation.Input> script = randomScript(plan.getStageIndex(i), random);
+                    boolean ticking = random.nextBoolean();
+
+                    StringBuilder trace = new StringBuilder();
+                    Simulation simulation = new Simulation(plan, history, i, script, ticking, trace);
+                    try {
+                        if (simulation.run()) {
+                            finished++;
+                        }
+                    } catch (Simulation.InvariantException e) {
+                        System.out.print(trace);
+                        System.err.println("Run " + run + " of seed " + seed + " failed: " + e.getMessage());
+                        System.exit(1);
+                    }
+
+                    if (printTraces) {
+                        System.out.print(trace);
+                        System.out.println();
+                    }
+                    days++;
+                    inputs += script.size();
+                    cues += simulation.getCueCount();
+                    lateCues += simulation.getLateCues();
+                    maxCueLatency = Math.max(maxCueLatency, simulation.getMaxCueLatency());
+                }
+
+                history.close();
+                historyFile.delete();
+            }
+        } finally {
+            historyFile.delete();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        System.out.println("Simulated " + days + " days (" + finished + " finished, " + inputs
+                + " inputs) with seed " + seed + " in " + elapsedMillis + "ms. Every invariant held.");
+        System.out.println("Gave " + cues + " cues, " + lateCues + " of them at the boundary after moving or resuming"
+                + " rather than " + CueScheduler.LEAD_MILLIS + "ms ahead. The worst cue latency was " + maxCueLatency + "ms.");
+    }
+
+    /**
+     * Makes a script of random input spread over the length of the day. Stopping, if it happens,
+     * is always the last input.
+     */
+    private static List<Simulation.Input> randomScript(StageIndex day, Random random) {
+
+        long length = day.getLength();
+
+        int count = random.nextInt(MAX_INPUTS + 1);
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = (long) (random.nextDouble() * length);
+        }
+        Arrays.sort(times);
+
+        Simulation.Action[] actions = {Simulation.Action.PAUSE, Simulation.Action.ADD_MINUTE,
+                Simulation.Action.SUBTRACT_MINUTE, Simulation.Action.SEEK, Simulation.Action.KILL};
+        List<Simulation.Input> script = new ArrayList<>(count + 1);
+        for (long time : times) {
+            Simulation.Action action = actions[random.nextInt(actions.length)];
+            long downtime = (long) (random.nextDouble() * MAX_DOWNTIME_MILLIS);
+            script.add(new Simulation.Input(time, action, random.nextInt(day.numberOfStages()), downtime));
+        }
+        if (random.nextDouble() < STOP_CHANCE) {
+            long last = count > 0 ? times[count - 1] : 0;
+            script.add(new Simulation.Input(last + (long) (random.nextDouble() * (length - last)), Simulation.Action.STOP));
+        }
+        return script;
+    }
+}